@@ -0,0 +1,136 @@
+package client;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the server stream in either protocol: text lines before (and without)
+ * "/proto binary", length-prefixed frames after the server's PROTO:BINARY ack.
+ * Mirrors server.WireProtocol; the payload of the last frame is parsed in place
+ * with the varint helpers instead of being split into strings.
+ */
+public class FrameReader {
+    public static final String PROTO_COMMAND = "/proto binary";
+    public static final String PROTO_ACK = "PROTO:BINARY";
+    public static final String PROTO_SNAKE_DELTA = "/proto snake-delta";
+
+    public static final int OP_TEXT = 0x01;
+    public static final int OP_SNAKE = 0x10;
+    public static final int OP_ROGUE_MAP = 0x13;
+    public static final int OP_SNAKE_DELTA = 0x14;
+    public static final int OP_ROGUE_DELTA = 0x15;
+    public static final int OP_SPACE = 0x16;
+    public static final int OP_SURVIVAL = 0x17;
+    public static final int OP_SEQUENCED = 0x18;
+
+    private final InputStream in;
+    private byte[] buf = new byte[1024];
+    private int len, pos;
+
+    public FrameReader(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
+
+    // For datagrams: each one is handed in whole with readFrame(data, off, n)
+    public FrameReader() {
+        this.in = null;
+    }
+
+    // Text protocol: one UTF-8 line, null at end of stream
+    public String readLine() throws IOException {
+        len = 0;
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) return len == 0 ? null : text();
+            append((byte) b);
+        }
+        if (len > 0 && buf[len - 1] == '\r') len--;
+        return text();
+    }
+
+    // Binary protocol: loads the next frame's payload and returns its opcode
+    public int readFrame() throws IOException {
+        int op = in.read();
+        if (op < 0) throw new EOFException();
+        int n = 0, shift = 0, b;
+        do {
+            b = in.read();
+            if (b < 0) throw new EOFException();
+            n |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        if (buf.length < n) buf = new byte[n];
+        int read = 0;
+        while (read < n) {
+            int r = in.read(buf, read, n - read);
+            if (r < 0) throw new EOFException();
+            read += r;
+        }
+        len = n;
+        pos = 0;
+        return op;
+    }
+
+    // One frame already in memory (a UDP datagram): loads its payload and returns its opcode
+    public int readFrame(byte[] data, int off, int n) {
+        int end = off + n, op = data[off++] & 0xFF;
+        int size = 0, shift = 0, b;
+        do {
+            b = data[off++];
+            size |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        size = Math.min(size, end - off);
+
+        if (buf.length < size) buf = new byte[size];
+        System.arraycopy(data, off, buf, 0, size);
+        len = size;
+        pos = 0;
+        return op;
+    }
+
+    // OP_SEQUENCED (the payload is [sequence:4][frame], like a datagram): loads the wrapped frame in place of this one
+    // and returns its opcode. Read the sequence first with u32().
+    public int unwrap() {
+        return readFrame(buf, pos, len - pos);
+    }
+
+    // --- PAYLOAD ACCESS (current frame) ---
+
+    public String text() {
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+
+    public int u8() {
+        return buf[pos++] & 0xFF;
+    }
+
+    public int u32() {
+        return (u8() << 24) | (u8() << 16) | (u8() << 8) | u8();
+    }
+
+    public int varint() {
+        int v = 0, shift = 0, b;
+        do {
+            b = buf[pos++];
+            v |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+
+    public int zigzag() {
+        int v = varint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private void append(byte b) {
+        if (len == buf.length) buf = Arrays.copyOf(buf, len * 2);
+        buf[len++] = b;
+    }
+}
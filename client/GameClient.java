@@ -4,19 +4,27 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
 import javax.swing.*; 
 import javax.swing.border.EmptyBorder;
 
 public class GameClient {
     private Socket socket;
     private PrintWriter out;
-    private BufferedReader in;
+    private FrameReader in;
     private String username;
+    // Binary frames for real-time games; run with -Dprotocol=text to debug with the text protocol
+    private final boolean useBinary = !"text".equalsIgnoreCase(System.getProperty("protocol"));
+    // Real-time state over UDP next to the TCP connection (binary only); -Dudp=off keeps everything on TCP
+    private final boolean useUdp = useBinary && !"off".equalsIgnoreCase(System.getProperty("udp"));
+    private DatagramSocket udp;
+    private volatile boolean udpAcked = false;
+    private final int[] udpLastSeq = new int[256]; // Newest datagram sequence applied, per opcode
 
     // --- THEME COLORS ---
     private final Color COL_DARK_BG = new Color(15, 15, 25);
@@ -26,6 +34,7 @@ public class GameClient {
     private final Color COL_CARD_BG = new Color(30, 30, 45, 200); 
     private final Color COL_DARK_LOGO = new Color(40, 40, 50); // THIS WAS MISSING
     private final Color COL_VAL_RED = new Color(255, 70, 85); 
+    private final Color COL_BG_TOP = new Color(10, 10, 20), COL_BG_BOTTOM = new Color(40, 20, 60); // Hub gradient, also behind the game loops
 
     // GUI COMPONENTS
     private JFrame frame = new JFrame("GALAXY GAMING HUB | ULTIMATE EDITION");
@@ -50,16 +59,21 @@ public class GameClient {
     // GAME VARIABLES
     private Timer runAnimTimer;
     private int p1X=10, p2X=10, targetP1X=10, targetP2X=10; 
-    private Timer spaceLoop;
-    private boolean isLeftPlayer = true;
-    private int myX=50, myY=250, enemyX=700, enemyY=250;
-    private int myHP=100, enemyHP=100;
-    private Set<Integer> keysPressed = new HashSet<>();
-    private ArrayList<Bullet> myBullets = new ArrayList<>();
-    private ArrayList<Bullet> enemyBullets = new ArrayList<>();
-    private ArrayList<Particle> particles = new ArrayList<>();
+    private int mySeat = 0, sentKeys = -1; // Galactic War: our ship, last key state sent
+    private volatile SpaceWorld spaceWorld; // Latest server snapshot
+    private float[] shipDrawX = new float[0], shipDrawY = new float[0]; // Drawn positions, eased towards the snapshot
+    private int[] seenShots, seenHits; // Event counters already played, guarded by this (see publishSpace)
+    private volatile int spaceKeys = 0; // Held keys as /move K: bits, kept by the key listener
+    private final Particles particles = new Particles(512);
+
+    // Decoded messages on their way from the network threads to the thread that owns them (see Inbox)
+    private final Inbox.ForEdt<String> ui = new Inbox.ForEdt<>(this::processMessage);
+    private final Inbox.Ordered<SnakeFrame> snakeFrames = new Inbox.Ordered<>();
+    private final Inbox.Latest<SpaceWorld> spaceStates = new Inbox.Latest<>();
+    private final Inbox.Latest<SurvState> survivalStates = new Inbox.Latest<>();
 
     public GameClient() {
+        SoundEngine.preload();
         setupNetwork();
         setupGUI();
         login();
@@ -69,8 +83,8 @@ public class GameClient {
     private void setupNetwork() {
         try {
             socket = new Socket("127.0.0.1", 5000);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            in = new FrameReader(socket.getInputStream());
         } catch (Exception e) {
             JOptionPane.showMessageDialog(null, "SERVER OFFLINE! Start GalaxyServer.jar first.");
             System.exit(0);
@@ -87,7 +101,7 @@ public class GameClient {
                 super.paintComponent(g);
                 Graphics2D g2d = (Graphics2D) g;
                 g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                GradientPaint gp = new GradientPaint(0, 0, new Color(10, 10, 20), getWidth(), getHeight(), new Color(40, 20, 60));
+                GradientPaint gp = new GradientPaint(0, 0, COL_BG_TOP, getWidth(), getHeight(), COL_BG_BOTTOM);
                 g2d.setPaint(gp);
                 g2d.fillRect(0, 0, getWidth(), getHeight());
             }
@@ -158,7 +172,8 @@ public class GameClient {
     }
 
     private void stopAllGamesAndShowLobby() {
-        if(spaceLoop != null && spaceLoop.isRunning()) spaceLoop.stop();
+        if(spacePanel != null) spacePanel.loop.stop();
+        if(snakePanel != null) snakePanel.loop.stop();
         if(runAnimTimer != null && runAnimTimer.isRunning()) runAnimTimer.stop();
         if(survivalPanel != null) survivalPanel.stopGame();
         frame.setCursor(Cursor.getDefaultCursor());
@@ -223,14 +238,15 @@ public class GameClient {
 
     // --- POPUP FOR ZOMBIE GAME ---
     private void showSurvivalModeSelector() {
-        String[] options = {"SOLO", "MULTIPLAYER"};
+        String[] options = {"SOLO", "HORDE", "MULTIPLAYER"};
         int choice = JOptionPane.showOptionDialog(frame, "Select Mode for Crimson Survival:", "Game Mode", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
         
-        cardLayout.show(mainContainer, "SURVIVAL");
-        if (choice == 0) {
-            survivalPanel.startGame(false); // Solo
+        if (choice == 0 || choice == 1) {
+            cardLayout.show(mainContainer, "SURVIVAL");
+            survivalPanel.hordeMode = choice == 1;
+            survivalPanel.startGame(false); // Solo, simulated here
         } else {
-            survivalPanel.startGame(true);  // Multiplayer
+            out.println("/play survival");  // Co-op on the server, starts with GAME_START
         }
     }
 
@@ -354,121 +370,196 @@ public class GameClient {
         mainContainer.add(spacePanel, "SPACE");
     }
 
-    class SpacePanel extends JPanel {
+    class SpacePanel extends JPanel implements RenderLoop.Scene {
+        final RenderLoop loop = new RenderLoop(this, this, COL_BG_TOP, COL_BG_BOTTOM);
+        private final int[] shipXs = new int[3], shipYs = new int[3];
         public SpacePanel() {
             setOpaque(false); setFocusable(true);
             addKeyListener(new KeyAdapter() {
-                public void keyPressed(KeyEvent e) { 
-                    keysPressed.add(e.getKeyCode()); 
-                    if(e.getKeyCode()==KeyEvent.VK_SPACE) {
-                        safeSound("SHOOT");
-                        myBullets.add(new Bullet(myX+(isLeftPlayer?40:-10), myY+15));
-                        out.println("/move SHOOT");
-                    }
-                }
-                public void keyReleased(KeyEvent e) { keysPressed.remove(e.getKeyCode()); }
+                public void keyPressed(KeyEvent e) { spaceKeys |= spaceKeyBit(e.getKeyCode()); }
+                public void keyReleased(KeyEvent e) { spaceKeys &= ~spaceKeyBit(e.getKeyCode()); }
             });
         }
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D)g;
+        @Override protected void paintComponent(Graphics g) { loop.paintLast(g); }
+
+        // The server simulates everything; we send key state when it changes and ease our drawing towards its snapshots
+        public void update() {
+            int k = spaceKeys;
+            if(k!=sentKeys) { out.println("/move K:"+k); sentKeys=k; }
+            SpaceWorld latest = spaceStates.take(); if(latest!=null) spaceWorld = latest;
+            SpaceWorld w = spaceWorld;
+            if(w!=null) {
+                if(shipDrawX.length!=w.x.length) { shipDrawX=new float[w.x.length]; shipDrawY=new float[w.x.length]; for(int i=0;i<w.x.length;i++){shipDrawX[i]=w.x[i]; shipDrawY[i]=w.y[i];} }
+                for(int i=0;i<w.x.length;i++) { shipDrawX[i]+=(w.x[i]-shipDrawX[i])*0.5f; shipDrawY[i]+=(w.y[i]-shipDrawY[i])*0.5f; }
+            }
+            particles.update();
+        }
+
+        public void render(Graphics2D g2, int width, int height) {
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             g2.setColor(Color.WHITE); for(int i=0; i<30; i++) g2.fillOval((i*29)%900, (i*37)%700, 2, 2);
-            g2.setColor(Color.GREEN); int[] xp = {myX, myX+40, myX}; int[] yp = {myY, myY+20, myY+40}; if(!isLeftPlayer) { xp[0]+=40; xp[1]-=40; xp[2]+=40; } g2.fillPolygon(xp, yp, 3);
-            g2.setColor(Color.RED); int[] ex = {enemyX, enemyX+40, enemyX}; int[] ey = {enemyY, enemyY+20, enemyY+40}; if(isLeftPlayer) { ex[0]+=40; ex[1]-=40; ex[2]+=40; } g2.fillPolygon(ex, ey, 3);
-            g2.setColor(Color.YELLOW); for(Bullet b:myBullets) g2.fillRect(b.x,b.y,10,4);
-            g2.setColor(Color.MAGENTA); for(Bullet b:enemyBullets) g2.fillRect(b.x,b.y,10,4);
-            g2.setColor(Color.ORANGE); for(Particle p:particles) g2.fillRect((int)p.x,(int)p.y,3,3);
+            SpaceWorld w = spaceWorld; if(w==null || shipDrawX.length!=w.x.length) return;
+            int enemy = -1;
+            for(int i=0; i<w.x.length; i++) {
+                if(i!=mySeat && enemy<0) enemy=i;
+                if(w.hp[i]<=0) continue;
+                int sx=(int)shipDrawX[i], sy=(int)shipDrawY[i], nose=(i%2==1)?sx:sx+40, tail=(i%2==1)?sx+40:sx;
+                shipXs[0]=tail; shipXs[1]=nose; shipXs[2]=tail; shipYs[0]=sy; shipYs[1]=sy+20; shipYs[2]=sy+40;
+                g2.setColor(i==mySeat?Color.GREEN:Color.RED); g2.fillPolygon(shipXs, shipYs, 3);
+                if(w.x.length>2) { g2.fillRect(sx, sy-8, w.hp[i]*40/100, 3); }
+            }
+            for(int b=0; b<w.bx.length; b++) { g2.setColor(w.bo[b]==mySeat?Color.YELLOW:Color.MAGENTA); g2.fillRect(w.bx[b],w.by[b],10,4); }
+            g2.setColor(Color.ORANGE); particles.draw(g2, 3);
             g2.setColor(Color.WHITE); g2.drawRect(20, 20, 200, 10); g2.drawRect(650, 20, 200, 10);
-            g2.setColor(Color.GREEN); g2.fillRect(21, 21, myHP*2, 8);
-            g2.setColor(Color.RED); g2.fillRect(651, 21, enemyHP*2, 8);
+            g2.setColor(Color.GREEN); g2.fillRect(21, 21, w.hp[mySeat]*2, 8);
+            if(enemy>=0) { g2.setColor(Color.RED); g2.fillRect(651, 21, w.hp[enemy]*2, 8); }
         }
     }
-    
+    private static int spaceKeyBit(int key) {
+        switch(key) { case KeyEvent.VK_W: return 1; case KeyEvent.VK_S: return 2; case KeyEvent.VK_A: return 4; case KeyEvent.VK_D: return 8; case KeyEvent.VK_SPACE: return 16; default: return 0; }
+    }
+
     private void startSpaceGame() {
-        spaceLoop = new Timer(16, e -> {
-            if(keysPressed.contains(KeyEvent.VK_W) && myY>0) myY-=5;
-            if(keysPressed.contains(KeyEvent.VK_S) && myY<600) myY+=5;
-            if(keysPressed.contains(KeyEvent.VK_A) && myX>0) myX-=5;
-            if(keysPressed.contains(KeyEvent.VK_D) && myX<850) myX+=5;
-            out.println("/move POS:"+myX+":"+myY);
-            updateBullets(myBullets, 10); updateBullets(enemyBullets, -10);
-            Rectangle me = new Rectangle(myX, myY, 40, 40);
-            Iterator<Bullet> it = enemyBullets.iterator();
-            while(it.hasNext()) { if(me.intersects(it.next().getRect())) { it.remove(); out.println("/move HIT"); createExplosion(myX, myY); safeSound("HIT"); } }
-            Iterator<Particle> pi = particles.iterator(); while(pi.hasNext()) if(!pi.next().update()) pi.remove();
-            spacePanel.repaint();
-        });
-        spaceLoop.start();
+        spacePanel.loop.stop(); // A rematch may find the last game's loop still running: reset nothing under it
+        sentKeys = -1; particles.clear(); spaceWorld = null; spaceStates.clear(); resetSpaceEvents();
+        spacePanel.loop.start();
         spacePanel.requestFocusInWindow();
     }
-    private void updateBullets(ArrayList<Bullet> list, int s) { int dir = isLeftPlayer?1:-1; Iterator<Bullet> it = list.iterator(); while(it.hasNext()) { Bullet b=it.next(); b.x+=(s*dir); if(b.x<0||b.x>900) it.remove(); } }
-    private void createExplosion(int x, int y) { for(int i=0;i<10;i++) particles.add(new Particle(x,y)); }
-    class Bullet { int x,y; public Bullet(int x,int y){this.x=x;this.y=y;} Rectangle getRect(){return new Rectangle(x,y,10,4);} }
-    class Particle { float x,y,vx,vy; int life=20; public Particle(int x,int y){this.x=x;this.y=y; vx=(float)(Math.random()*6-3); vy=(float)(Math.random()*6-3);} boolean update(){x+=vx;y+=vy;life--;return life>0;} }
+    // New snapshot (network threads): sounds and explosions right away, since a snapshot may be replaced before the
+    // render loop takes it. Shots and hits are running counters (mod 256), so one that was superseded or lost on UDP
+    // still shows up in the next; an older snapshot arriving late (counters behind ours) plays nothing.
+    private synchronized void publishSpace(SpaceWorld w) {
+        if(seenShots==null || seenShots.length!=w.x.length) { seenShots=w.shots.clone(); seenHits=w.hits.clone(); }
+        for(int i=0;i<w.x.length;i++) {
+            if(newer(w.shots[i], seenShots[i])) { seenShots[i]=w.shots[i]; safeSound("SHOOT"); }
+            if(newer(w.hits[i], seenHits[i])) { seenHits[i]=w.hits[i]; safeSound("HIT"); particles.burst(w.x[i], w.y[i], 10, 20); }
+        }
+        spaceStates.publish(w);
+    }
+    private static boolean newer(int counter, int seen) { int d=(counter-seen)&0xFF; return d!=0 && d<128; }
+    private synchronized void resetSpaceEvents() { seenShots=null; seenHits=null; }
+    // One server snapshot: ships per seat, bullets with their owner's seat
+    class SpaceWorld {
+        int[] x,y,hp,flags,shots,hits,bx,by,bo;
+        SpaceWorld(int ships, int bullets) { x=new int[ships]; y=new int[ships]; hp=new int[ships]; flags=new int[ships]; shots=new int[ships]; hits=new int[ships]; bx=new int[bullets]; by=new int[bullets]; bo=new int[bullets]; }
+        // SPACE:tick:x,y,hp,flags,shots,hits;...:x,y,owner;...
+        SpaceWorld(String msg) {
+            String[] parts=msg.split(":", -1), ships=parts[2].isEmpty()?new String[0]:parts[2].split(";"), shots=parts[3].isEmpty()?new String[0]:parts[3].split(";");
+            x=new int[ships.length]; y=new int[ships.length]; hp=new int[ships.length]; flags=new int[ships.length]; this.shots=new int[ships.length]; hits=new int[ships.length]; bx=new int[shots.length]; by=new int[shots.length]; bo=new int[shots.length];
+            for(int i=0;i<ships.length;i++) { String[] v=ships[i].split(","); x[i]=Integer.parseInt(v[0]); y[i]=Integer.parseInt(v[1]); hp[i]=Integer.parseInt(v[2]); flags[i]=Integer.parseInt(v[3]); this.shots[i]=Integer.parseInt(v[4]); hits[i]=Integer.parseInt(v[5]); }
+            for(int b=0;b<shots.length;b++) { String[] v=shots[b].split(","); bx[b]=Integer.parseInt(v[0]); by[b]=Integer.parseInt(v[1]); bo[b]=Integer.parseInt(v[2]); }
+        }
+    }
+    private SpaceWorld decodeSpace(FrameReader r) {
+        r.varint(); int n=r.u8(); int[] sx=new int[n], sy=new int[n], hp=new int[n], fl=new int[n], sh=new int[n], hi=new int[n];
+        for(int i=0;i<n;i++) { sx[i]=r.zigzag(); sy[i]=r.zigzag(); hp[i]=r.varint(); fl[i]=r.u8(); sh[i]=r.u8(); hi[i]=r.u8(); }
+        SpaceWorld w = new SpaceWorld(n, r.varint()); w.x=sx; w.y=sy; w.hp=hp; w.flags=fl; w.shots=sh; w.hits=hi;
+        for(int b=0;b<w.bx.length;b++) { w.bx[b]=r.zigzag(); w.by[b]=r.zigzag(); w.bo[b]=r.u8(); }
+        return w;
+    }
 
     // --- 8. SNAKE ---
     private void createSnake() {
         snakePanel = new SnakePanel();
         mainContainer.add(snakePanel, "SNAKE");
     }
-    class SnakePanel extends JPanel {
-        private ArrayList<Point> s1 = new ArrayList<>();
-        private ArrayList<Point> s2 = new ArrayList<>();
+    class SnakePanel extends JPanel implements RenderLoop.Scene {
+        final RenderLoop loop = new RenderLoop(this, this, COL_BG_TOP, COL_BG_BOTTOM);
+        private final Color GRID = new Color(50,50,50);
+        private ArrayDeque<Point> s1 = new ArrayDeque<>();
+        private ArrayDeque<Point> s2 = new ArrayDeque<>();
         private Point food = new Point(-1,-1);
         private final int TILE_SIZE = 20;
+        private boolean synced = false; // Deltas only apply on top of a keyframe
         public SnakePanel() {
             setOpaque(false); setFocusable(true);
             addKeyListener(new KeyAdapter() { public void keyPressed(KeyEvent e) { int k=e.getKeyCode(); if(k==KeyEvent.VK_W||k==KeyEvent.VK_UP) out.println("/move UP"); if(k==KeyEvent.VK_D||k==KeyEvent.VK_RIGHT) out.println("/move RIGHT"); if(k==KeyEvent.VK_S||k==KeyEvent.VK_DOWN) out.println("/move DOWN"); if(k==KeyEvent.VK_A||k==KeyEvent.VK_LEFT) out.println("/move LEFT"); }});
         }
-        public void updateState(String data) {
-            try { String[] sections = data.split(":"); String[] f = sections[0].split(","); food = new Point(Integer.parseInt(f[0]), Integer.parseInt(f[1]));
-            s1.clear(); String[] p1Raw = sections[1].split(","); for(int i=0; i<p1Raw.length; i+=2) s1.add(new Point(Integer.parseInt(p1Raw[i]), Integer.parseInt(p1Raw[i+1])));
-            s2.clear(); if(sections.length > 2) { String[] p2Raw = sections[2].split(","); for(int i=0; i<p2Raw.length; i+=2) s2.add(new Point(Integer.parseInt(p2Raw[i]), Integer.parseInt(p2Raw[i+1]))); }
-            repaint(); } catch(Exception e) {}
+        private void apply(SnakeFrame f) {
+            if(f.key) { food = new Point(f.fx, f.fy); setBody(s1, f.body1); setBody(s2, f.body2); synced = true; return; }
+            if(!synced) return;
+            if((f.flags & 1) != 0) food = new Point(f.fx, f.fy);
+            if((f.flags & 2) != 0) step(s1, f.h1x, f.h1y, (f.flags & 4) != 0);
+            if((f.flags & 8) != 0) step(s2, f.h2x, f.h2y, (f.flags & 16) != 0);
         }
-        @Override protected void paintComponent(Graphics g) {
-            super.paintComponent(g); Graphics2D g2 = (Graphics2D)g; g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2.setColor(new Color(50,50,50)); for(int i=0; i<getWidth(); i+=TILE_SIZE) g2.drawLine(i,0,i,getHeight()); for(int i=0; i<getHeight(); i+=TILE_SIZE) g2.drawLine(0,i,getWidth(),i);
+        private void setBody(ArrayDeque<Point> s, int[] xy) { s.clear(); for(int i=0; i+1<xy.length; i+=2) s.add(new Point(xy[i], xy[i+1])); }
+        // New head in front; when the tail moves too, its Point is recycled as the head
+        private void step(ArrayDeque<Point> s, int x, int y, boolean tailRemoved) { Point p = (tailRemoved && !s.isEmpty()) ? s.pollLast() : new Point(); p.setLocation(x, y); s.addFirst(p); }
+        @Override protected void paintComponent(Graphics g) { loop.paintLast(g); }
+        public void update() { for(SnakeFrame f; (f = snakeFrames.poll()) != null; ) apply(f); } // The server moves the snakes
+        public void render(Graphics2D g2, int width, int height) {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(GRID); for(int i=0; i<getWidth(); i+=TILE_SIZE) g2.drawLine(i,0,i,getHeight()); for(int i=0; i<getHeight(); i+=TILE_SIZE) g2.drawLine(0,i,getWidth(),i);
             g2.setColor(Color.RED); g2.fillOval(food.x*TILE_SIZE, food.y*TILE_SIZE, TILE_SIZE, TILE_SIZE);
             g2.setColor(Color.GREEN); for(Point p : s1) g2.fillRect(p.x*TILE_SIZE, p.y*TILE_SIZE, TILE_SIZE, TILE_SIZE);
             g2.setColor(Color.ORANGE); for(Point p : s2) g2.fillRect(p.x*TILE_SIZE, p.y*TILE_SIZE, TILE_SIZE, TILE_SIZE);
         }
     }
 
+    // One decoded snake frame: a keyframe (food, both bodies as x,y pairs head first) or a delta
+    // (flags as in OP_SNAKE_DELTA: 1=food, 2=snake 1 moved, 4=its tail too, 8=snake 2 moved, 16=its tail too)
+    class SnakeFrame { boolean key; int flags, fx, fy, h1x, h1y, h2x, h2y; int[] body1 = new int[0], body2 = new int[0]; }
+    // SNAKE:fx,fy:x,y,x,y...:x,y,...
+    private SnakeFrame decodeSnake(String data) {
+        SnakeFrame f = new SnakeFrame(); f.key = true; String[] sections = data.split(":"); String[] food = sections[0].split(","); f.fx = Integer.parseInt(food[0]); f.fy = Integer.parseInt(food[1]);
+        f.body1 = ints(sections[1]); if(sections.length > 2) f.body2 = ints(sections[2]);
+        return f;
+    }
+    private SnakeFrame decodeSnake(FrameReader r) {
+        SnakeFrame f = new SnakeFrame(); f.key = true; f.fx = r.varint(); f.fy = r.varint(); f.body1 = readBody(r); f.body2 = readBody(r);
+        return f;
+    }
+    private int[] readBody(FrameReader r) { int[] xy = new int[r.varint()*2]; for(int i=0; i<xy.length; i++) xy[i] = r.varint(); return xy; }
+    private int[] ints(String csv) { if(csv.isEmpty()) return new int[0]; String[] v = csv.split(","); int[] r = new int[v.length]; for(int i=0; i<v.length; i++) r[i] = Integer.parseInt(v[i]); return r; }
+    // SNAKE_D:fx,fy:h1x,h1y,tail:h2x,h2y,tail -- empty section means unchanged
+    private SnakeFrame decodeSnakeDelta(String data) {
+        SnakeFrame f = new SnakeFrame(); String[] sections = data.split(":", -1);
+        if(!sections[0].isEmpty()) { int[] v = ints(sections[0]); f.flags |= 1; f.fx = v[0]; f.fy = v[1]; }
+        if(!sections[1].isEmpty()) { int[] v = ints(sections[1]); f.flags |= 2 | (v[2]==1 ? 4 : 0); f.h1x = v[0]; f.h1y = v[1]; }
+        if(!sections[2].isEmpty()) { int[] v = ints(sections[2]); f.flags |= 8 | (v[2]==1 ? 16 : 0); f.h2x = v[0]; f.h2y = v[1]; }
+        return f;
+    }
+    private SnakeFrame decodeSnakeDelta(FrameReader r) {
+        SnakeFrame f = new SnakeFrame(); f.flags = r.u8();
+        if((f.flags & 1) != 0) { f.fx = r.varint(); f.fy = r.varint(); }
+        if((f.flags & 2) != 0) { f.h1x = r.varint(); f.h1y = r.varint(); }
+        if((f.flags & 8) != 0) { f.h2x = r.varint(); f.h2y = r.varint(); }
+        return f;
+    }
+
     // --- 9. CRIMSON SURVIVAL (UPDATED) ---
     private void createSurvival() {
         survivalPanel = new SurvivalPanel();
         mainContainer.add(survivalPanel, "SURVIVAL");
     }
 
-    class SurvivalPanel extends JPanel implements ActionListener {
-        Timer timer = new Timer(16, this);
-        boolean running = false;
+    class SurvivalPanel extends JPanel implements RenderLoop.Scene {
+        final RenderLoop loop = new RenderLoop(this, this, COL_BG_TOP, COL_BG_BOTTOM);
+        volatile boolean running = false;
         double px=400, py=300;
         int score=0, wave=1;
         int fireCooldown = 0;
         int ammo = 30;
-        boolean isMultiplayer = false; 
-
-        // Multiplayer Friend
-        double friendX = -100, friendY = -100, friendAng = 0;
-        boolean friendShooting = false;
-        
-        class SBullet { 
-            double x,y,vx,vy; 
-            public SBullet(double x, double y, double ang) {
-                this.x=x; this.y=y;
-                this.vx = Math.cos(ang)*15; 
-                this.vy = Math.sin(ang)*15;
-            }
-        }
+        // Online co-op: the server runs the horde, we move ourselves and draw its view of the world
+        boolean online = false;
+        int mySeat = 0, worldW = 2400, worldH = 1800, sentX = -1, sentY = -1, sentAng = 0;
+        boolean sentFire = false;
+        volatile SurvState net;
         
-        ArrayList<Point> zombies = new ArrayList<>();
-        ArrayList<SBullet> bullets = new ArrayList<>(); 
-        boolean w,a,s,d, mouseDown;
-        int mx, my;
+        // Local runs: the classic 50-zombie game, or HORDE mode with thousands (-Dsurvival.horde=N) and hit points
+        final int HORDE_SIZE = Integer.getInteger("survival.horde", 6000);
+        final Horde horde = new Horde(Math.max(50, HORDE_SIZE), 256);
+        boolean hordeMode = false;
+        int hp = 100;
+        volatile boolean w,a,s,d, mouseDown; // Set by the listeners, read by the render loop
+        volatile int mx, my;
+
+        // Drawing resources made once, not per frame
+        private final Font HUD_FONT = new Font("Arial", Font.BOLD, 24);
+        private final BasicStroke CROSSHAIR = new BasicStroke(2);
+        private final int[] shipXs = new int[3], shipYs = new int[3];
+        private final RenderLoop.HudText killsText = new RenderLoop.HudText("KILLS: "), ammoText = new RenderLoop.HudText("AMMO: "), hpText = new RenderLoop.HudText("HP: "),
+                hordeText = new RenderLoop.HudText("HORDE "), waveText = new RenderLoop.HudText("WAVE ");
 
         public SurvivalPanel() {
             setOpaque(false); setFocusable(true);
@@ -490,11 +581,12 @@ public class GameClient {
             });
         }
 
-        public void startGame(boolean multiplayer) { 
-            this.isMultiplayer = multiplayer;
-            px=getWidth()/2; py=getHeight()/2; 
-            score=0; wave=1; fireCooldown=0; ammo=30; 
-            zombies.clear(); bullets.clear(); 
+        public void startGame(boolean online) { 
+            loop.stop(); // The fields and horde below belong to the render thread: reset them only once it's gone
+            this.online = online; net = null; sentX = -1; survivalStates.clear();
+            if(!online) { px=getWidth()/2; py=getHeight()/2; }
+            score=0; wave=1; fireCooldown=0; ammo=30; hp=100; if(online) hordeMode=false;
+            horde.reset(getWidth(), getHeight()); 
             w=false; a=false; s=false; d=false; mouseDown=false; 
             running=true; 
             
@@ -503,20 +595,42 @@ public class GameClient {
             Cursor blankCursor = Toolkit.getDefaultToolkit().createCustomCursor(cursorImg, new Point(0, 0), "blank cursor");
             frame.setCursor(blankCursor);
             
-            timer.start(); 
+            loop.start(); 
             requestFocusInWindow(); 
         }
         
-        public void stopGame() { running=false; timer.stop(); }
+        public void stopGame() { running=false; loop.stop(); }
 
-        public void updateFriend(double x, double y, double a, boolean shoot) {
-            friendX = x; friendY = y; friendAng = a; friendShooting = shoot;
+        // SURV_SEAT:seat:worldW:worldH:x:y
+        public void setSeat(String msg) { String[] p=msg.split(":"); mySeat=Integer.parseInt(p[1]); worldW=Integer.parseInt(p[2]); worldH=Integer.parseInt(p[3]); px=Integer.parseInt(p[4]); py=Integer.parseInt(p[5]); }
+
+        // New server view (render loop, newest only): sounds from our own events; snap back if the server didn't let us get where we think we are
+        public void applyState(SurvState st) {
+            for(int i=0;i<st.seat.length;i++) if(st.seat[i]==mySeat) {
+                if((st.flags[i]&1)!=0) safeSound("SHOOT"); if((st.flags[i]&2)!=0 && (net==null || net.tick%10==0)) safeSound("HIT");
+                if(Math.abs(st.x[i]-px)>40 || Math.abs(st.y[i]-py)>40) { px=st.x[i]; py=st.y[i]; }
+            }
+            score=st.kills; ammo=st.ammo; wave=st.wave; net=st;
+        }
+        double camX() { return Math.max(0, Math.min(worldW-getWidth(), px-getWidth()/2)); }
+        double camY() { return Math.max(0, Math.min(worldH-getHeight(), py-getHeight()/2)); }
+
+        // Move locally (the server caps our speed), send position/aim/trigger at most every other frame when they change
+        private void stepOnline() {
+            if(w && py > 0) py-=4; if(s && py < worldH-1) py+=4; if(a && px > 0) px-=4; if(d && px < worldW-1) px+=4;
+            double angle = Math.atan2(my+camY()-py, mx+camX()-px); int ang=(int)Math.round(angle*100);
+            if(((int)px!=sentX || (int)py!=sentY || ang!=sentAng || mouseDown!=sentFire) && (timerTicks++ & 1)==0) {
+                out.println("/move SURV:" + (int)px + ":" + (int)py + ":" + String.format(Locale.ROOT, "%.2f", angle) + ":" + (mouseDown?1:0));
+                sentX=(int)px; sentY=(int)py; sentAng=ang; sentFire=mouseDown;
+            }
         }
+        int timerTicks = 0;
 
-        public void actionPerformed(ActionEvent e) {
+        public void update() {
             if(!running) return;
             try {
-                if(!isFocusOwner()) requestFocusInWindow();
+                if(!isFocusOwner()) SwingUtilities.invokeLater(this::requestFocusInWindow);
+                if(online) { SurvState st = survivalStates.take(); if(st != null) applyState(st); stepOnline(); return; }
 
                 if(w && py > 0) py-=4; 
                 if(s && py < getHeight()) py+=4; 
@@ -524,148 +638,150 @@ public class GameClient {
                 if(d && px < getWidth()) px+=4;
 
                 double angle = Math.atan2(my-py, mx-px);
-                
-                // --- MULTIPLAYER SYNC ---
-                if(isMultiplayer && System.currentTimeMillis() % 30 == 0) { 
-                    out.println("/move SURV:" + (int)px + ":" + (int)py + ":" + String.format("%.2f", angle) + ":" + (mouseDown?1:0));
-                }
 
-                if(mouseDown && fireCooldown <= 0 && ammo > 0) {
-                    bullets.add(new SBullet(px, py, angle));
+                if(mouseDown && fireCooldown <= 0 && ammo > 0 && horde.fire((float)px, (float)py, (float)(Math.cos(angle)*15), (float)(Math.sin(angle)*15))) {
                     safeSound("SHOOT");
                     fireCooldown = 8; 
                     ammo--; 
                 }
                 if(fireCooldown > 0) fireCooldown--;
 
-                Iterator<SBullet> bi = bullets.iterator();
-                while(bi.hasNext()) {
-                    SBullet b = bi.next();
-                    b.x += b.vx; b.y += b.vy;
-                    if(b.x<0||b.x>getWidth()||b.y<0||b.y>getHeight()) { bi.remove(); continue; }
-                    
-                    Iterator<Point> zi = zombies.iterator();
-                    boolean hit = false;
-                    while(zi.hasNext()) {
-                        Point z = zi.next();
-                        if(Math.abs(b.x - z.x) < 30 && Math.abs(b.y - z.y) < 30) {
-                            zi.remove(); hit = true; 
-                            score++; 
-                            ammo += 2;
-                            safeSound("HIT"); break;
-                        }
-                    }
-                    if(hit) bi.remove(); 
-                }
-                
-                if(Math.random() < 0.02 * wave && zombies.size() < 50) {
+                // Spawn along the edges: now and then (classic), or topping the horde up every frame
+                for(int n = hordeMode ? Math.min(50, HORDE_SIZE-horde.zombies) : (Math.random() < 0.02 * wave && horde.zombies < 50 ? 1 : 0); n>0; n--) {
                     int side = (int)(Math.random()*4);
-                    int zx=0, zy=0;
-                    if(side==0){zx=(int)(Math.random()*getWidth()); zy=-20;}
-                    if(side==1){zx=(int)(Math.random()*getWidth()); zy=getHeight()+20;}
-                    if(side==2){zx=-20; zy=(int)(Math.random()*getHeight());}
-                    if(side==3){zx=getWidth()+20; zy=(int)(Math.random()*getHeight());}
-                    zombies.add(new Point(zx, zy));
+                    float zx=0, zy=0;
+                    if(side==0){zx=(float)(Math.random()*getWidth()); zy=-20;}
+                    if(side==1){zx=(float)(Math.random()*getWidth()); zy=getHeight()+20;}
+                    if(side==2){zx=-20; zy=(float)(Math.random()*getHeight());}
+                    if(side==3){zx=getWidth()+20; zy=(float)(Math.random()*getHeight());}
+                    horde.spawn(zx, zy, hordeMode ? 1.5f+(float)Math.random() : 2f);
                 }
-                
-                for(Point z : zombies) {
-                    double ang = Math.atan2(py-z.y, px-z.x);
-                    z.x += Math.cos(ang)*2.0; 
-                    z.y += Math.sin(ang)*2.0;
-                    
-                    if(Math.hypot(px-z.x, py-z.y) < 25) {
-                        stopGame();
-                        JOptionPane.showMessageDialog(this, "GAME OVER!\nYour Score: " + score);
-                        stopAllGamesAndShowLobby(); 
+
+                int kills = horde.step((float)px, (float)py, 25f);
+                if(kills > 0) { score += kills; ammo += 2*kills; safeSound("HIT"); }
+                if(horde.bitten > 0) {
+                    hp -= hordeMode ? horde.bitten : hp; // Classic: one bite and it's over
+                    if(hp <= 0) {
+                        stopGame(); // This is the last frame; the dialog belongs on the EDT
+                        int finalScore = score;
+                        SwingUtilities.invokeLater(() -> { JOptionPane.showMessageDialog(this, "GAME OVER!\nYour Score: " + finalScore); stopAllGamesAndShowLobby(); });
                     }
                 }
-                repaint();
             } catch (Exception ex) { }
         }
 
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D)g;
+        @Override protected void paintComponent(Graphics g) { loop.paintLast(g); }
+
+        public void render(Graphics2D g2, int width, int height) {
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             
-            // --- DRAW FRIEND (TRIANGLE) ---
-            if(isMultiplayer && friendX > -50) {
-                g2.setColor(Color.GREEN);
-                Polygon fp = new Polygon();
-                fp.addPoint((int)(friendX + Math.cos(friendAng)*20), (int)(friendY + Math.sin(friendAng)*20)); // Tip
-                fp.addPoint((int)(friendX + Math.cos(friendAng + 2.5)*15), (int)(friendY + Math.sin(friendAng + 2.5)*15)); // Back 1
-                fp.addPoint((int)(friendX + Math.cos(friendAng - 2.5)*15), (int)(friendY + Math.sin(friendAng - 2.5)*15)); // Back 2
-                g2.fillPolygon(fp);
-                g2.drawString("ALLY", (int)friendX-15, (int)friendY-20);
+            if(online) paintOnline(g2);
+            else {
+                // --- DRAW PLAYER (TRIANGLE) ---
+                g2.setColor(Color.CYAN); 
+                drawShip(g2, px, py, Math.atan2(my-py, mx-px));
+                
+                // Zombies (axis-aligned squares: no antialiasing, it's most of the frame with a horde)
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                g2.setColor(COL_VAL_RED); for(int i=0;i<horde.zombies;i++) g2.fillRect((int)horde.zx[i]-12, (int)horde.zy[i]-12, 24, 24);
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2.setColor(Color.YELLOW); for(int i=0;i<horde.bullets;i++) g2.fillOval((int)horde.bx[i]-4, (int)horde.by[i]-4, 8, 8);
             }
-
-            // --- DRAW PLAYER (TRIANGLE) ---
-            g2.setColor(Color.CYAN); 
-            double aimAngle = Math.atan2(my-py, mx-px);
-            Polygon p = new Polygon();
-            p.addPoint((int)(px + Math.cos(aimAngle)*20), (int)(py + Math.sin(aimAngle)*20)); // Tip
-            p.addPoint((int)(px + Math.cos(aimAngle + 2.5)*15), (int)(py + Math.sin(aimAngle + 2.5)*15)); // Back 1
-            p.addPoint((int)(px + Math.cos(aimAngle - 2.5)*15), (int)(py + Math.sin(aimAngle - 2.5)*15)); // Back 2
-            g2.fillPolygon(p);
-            
-            // Zombies
-            g2.setColor(COL_VAL_RED); for(Point z : zombies) g2.fillRect(z.x-12, z.y-12, 24, 24);
-            g2.setColor(Color.YELLOW); for(SBullet b : bullets) g2.fillOval((int)b.x-4, (int)b.y-4, 8, 8);
             
             // --- CUSTOM CROSSHAIR ---
-            g2.setColor(new Color(0, 255, 0));
-            g2.setStroke(new BasicStroke(2));
+            g2.setColor(Color.GREEN);
+            g2.setStroke(CROSSHAIR);
             g2.drawOval(mx-10, my-10, 20, 20);
             g2.drawLine(mx, my-5, mx, my+5);
             g2.drawLine(mx-5, my, mx+5, my);
 
             // HUD
             g2.setColor(Color.WHITE);
-            g2.setFont(new Font("Arial", Font.BOLD, 24));
-            g2.drawString("KILLS: " + score, 20, 30);
+            g2.setFont(HUD_FONT);
+            g2.drawString(killsText.of(score), 20, 30);
             g2.setColor(ammo > 0 ? Color.GREEN : Color.RED);
-            g2.drawString("AMMO: " + ammo, 20, 55);
+            g2.drawString(ammoText.of(ammo), 20, 55);
             
-            if(isMultiplayer) {
-                g2.setFont(new Font("Arial", Font.BOLD, 12));
-                g2.setColor(Color.YELLOW);
-                g2.drawString("[MULTIPLAYER ACTIVE]", getWidth()-150, 30);
+            if(hordeMode) {
+                g2.setColor(Color.WHITE); g2.drawString(hordeText.of(horde.zombies), width-220, 30);
+                g2.setColor(hp>30?Color.GREEN:Color.RED); g2.drawString(hpText.of(hp), 20, 80);
+            }
+            SurvState st = net;
+            if(online && st!=null) {
+                g2.setColor(Color.WHITE);
+                g2.drawString(waveText.of(st.wave), width-300, 30); g2.drawString(hordeText.of(st.horde), width-180, 30);
+                for(int i=0;i<st.seat.length;i++) if(st.seat[i]==mySeat) { g2.setColor(st.hp[i]>30?Color.GREEN:Color.RED); g2.drawString(hpText.of(st.hp[i]), 20, 80); }
+            }
+        }
+
+        private void drawShip(Graphics2D g2, double x, double y, double ang) {
+            shipXs[0]=(int)(x + Math.cos(ang)*20); shipYs[0]=(int)(y + Math.sin(ang)*20); // Tip
+            shipXs[1]=(int)(x + Math.cos(ang + 2.5)*15); shipYs[1]=(int)(y + Math.sin(ang + 2.5)*15); // Back 1
+            shipXs[2]=(int)(x + Math.cos(ang - 2.5)*15); shipYs[2]=(int)(y + Math.sin(ang - 2.5)*15); // Back 2
+            g2.fillPolygon(shipXs, shipYs, 3);
+        }
+
+        // Server view: zombies and bullets relative to its origin (x5), players in world coordinates; we draw around our camera
+        private void paintOnline(Graphics2D g2) {
+            double cx=camX(), cy=camY(); SurvState st=net;
+            g2.setColor(Color.DARK_GRAY); g2.drawRect((int)-cx, (int)-cy, worldW, worldH);
+            if(st==null) return;
+            int ox=(int)(st.ox-cx), oy=(int)(st.oy-cy);
+            g2.setColor(COL_VAL_RED); for(int i=0;i<st.zx.length;i++) g2.fillRect(ox+st.zx[i]*5-12, oy+st.zy[i]*5-12, 24, 24);
+            g2.setColor(Color.YELLOW); for(int i=0;i<st.bx.length;i++) g2.fillOval(ox+st.bx[i]*5-4, oy+st.by[i]*5-4, 8, 8);
+            for(int i=0;i<st.seat.length;i++) {
+                boolean me=st.seat[i]==mySeat, down=(st.flags[i]&4)!=0;
+                g2.setColor(down?Color.GRAY:me?Color.CYAN:Color.GREEN);
+                if(me) drawShip(g2, px-cx, py-cy, Math.atan2(my+cy-py, mx+cx-px));
+                else { drawShip(g2, st.x[i]-cx, st.y[i]-cy, st.angle[i]*Math.PI/128); g2.drawString(down?"DOWN":"ALLY", (int)(st.x[i]-cx)-15, (int)(st.y[i]-cy)-20); }
             }
         }
     }
 
+    // SURV_STATE:tick:wave:horde:ammo:kills:ox,oy:seat,x,y,angle,hp,flags;...:bx,by;...:zx,zy;...  (or OP_SURVIVAL)
+    class SurvState {
+        int tick, wave, horde, ammo, kills, ox, oy; int[] seat, x, y, angle, hp, flags, bx, by, zx, zy;
+        SurvState() {}
+        SurvState(String msg) {
+            String[] p=msg.split(":", -1); tick=Integer.parseInt(p[1]); wave=Integer.parseInt(p[2]); horde=Integer.parseInt(p[3]); ammo=Integer.parseInt(p[4]); kills=Integer.parseInt(p[5]);
+            String[] o=p[6].split(","); ox=Integer.parseInt(o[0]); oy=Integer.parseInt(o[1]);
+            String[] pl=p[7].isEmpty()?new String[0]:p[7].split(";"); players(pl.length);
+            for(int i=0;i<pl.length;i++) { String[] v=pl[i].split(","); seat[i]=Integer.parseInt(v[0]); x[i]=Integer.parseInt(v[1]); y[i]=Integer.parseInt(v[2]); angle[i]=Integer.parseInt(v[3]); hp[i]=Integer.parseInt(v[4]); flags[i]=Integer.parseInt(v[5]); }
+            int[][] b=points(p[8]), z=points(p[9]); bx=b[0]; by=b[1]; zx=z[0]; zy=z[1];
+        }
+        void players(int n) { seat=new int[n]; x=new int[n]; y=new int[n]; angle=new int[n]; hp=new int[n]; flags=new int[n]; }
+        private int[][] points(String s) { String[] e=s.isEmpty()?new String[0]:s.split(";"); int[][] r=new int[2][e.length]; for(int i=0;i<e.length;i++) { int c=e[i].indexOf(','); r[0][i]=Integer.parseInt(e[i].substring(0,c)); r[1][i]=Integer.parseInt(e[i].substring(c+1)); } return r; }
+    }
+    private SurvState decodeSurvival(FrameReader r) {
+        SurvState st=new SurvState(); st.tick=r.varint(); st.wave=r.varint(); st.horde=r.varint(); st.ammo=r.varint(); st.kills=r.varint(); st.ox=r.varint(); st.oy=r.varint();
+        int n=r.u8(); st.players(n);
+        for(int i=0;i<n;i++) { st.seat[i]=r.u8(); st.x[i]=r.varint(); st.y[i]=r.varint(); st.angle[i]=r.u8(); st.hp[i]=r.u8(); st.flags[i]=r.u8(); }
+        int m=r.varint(); st.bx=new int[m]; st.by=new int[m]; for(int i=0;i<m;i++) { st.bx[i]=r.u8(); st.by[i]=r.u8(); }
+        int k=r.varint(); st.zx=new int[k]; st.zy=new int[k]; for(int i=0;i<k;i++) { st.zx[i]=r.u8(); st.zy[i]=r.u8(); }
+        return st;
+    }
+
     // --- PROTOCOL ---
+    // Lobby, chat and widget messages, on the EDT in arrival order (real-time state never gets here, see decodeText)
     private void processMessage(String msg) {
-        if (msg.startsWith("GAME_START:")) {
+        if (msg.equals("UDP:OK")) udpAcked = true;
+        else if (msg.startsWith("UDP:") && useUdp && udp == null) startUdp(msg);
+        else if (msg.startsWith("GAME_START:")) {
             safeSound("WIN"); 
             String check = msg.toUpperCase(); 
             if(check.contains("SPRINT")) { cardLayout.show(mainContainer, "SPRINT"); if(runAnimTimer!=null) runAnimTimer.start(); }
-            else if(check.contains("GALACTIC")) { cardLayout.show(mainContainer, "SPACE"); }
-            else if(check.contains("SNAKE")) { cardLayout.show(mainContainer, "SNAKE"); }
+            else if(check.contains("GALACTIC")) { cardLayout.show(mainContainer, "SPACE"); spaceWorld=null; startSpaceGame(); }
+            else if(check.contains("SNAKE")) { cardLayout.show(mainContainer, "SNAKE"); snakePanel.loop.start(); }
+            else if(check.contains("CRIMSON")) { cardLayout.show(mainContainer, "SURVIVAL"); survivalPanel.startGame(true); }
             chatArea.append(">> " + msg + "\n");
         }
-        else if (msg.startsWith("SURV:")) { // --- MULTIPLAYER UPDATE ---
-            try {
-                String[] parts = msg.split(":");
-                double fx = Double.parseDouble(parts[1]);
-                double fy = Double.parseDouble(parts[2]);
-                double fa = Double.parseDouble(parts[3]);
-                boolean fs = parts[4].equals("1");
-                survivalPanel.updateFriend(fx, fy, fa, fs);
-            } catch(Exception e) {}
-        }
-        else if (msg.equals("ENEMY_SHOOT") || (msg.startsWith("OBSTACLE:") && !msg.contains("RUN"))) safeSound("SHOOT");
-        else if (msg.equals("ENEMY_HIT_CONFIRM") || msg.contains("stumbled") || msg.contains("Skeleton")) safeSound("HIT");
+        else if (msg.startsWith("SURV_SEAT:")) survivalPanel.setSeat(msg); // --- CO-OP (server horde) ---
+        else if (msg.startsWith("OBSTACLE:") && !msg.contains("RUN")) safeSound("SHOOT");
+        else if (msg.contains("stumbled") || msg.contains("Skeleton")) safeSound("HIT");
         else if (msg.startsWith("SPRINT_UPDATE:")) safeSound("SELECT");
         else if (msg.startsWith("OBSTACLE:")) sprintCmdLabel.setText(msg.split(":")[1]);
         else if (msg.startsWith("SPRINT_UPDATE:")) { String[] p=msg.split(":"); targetP1X=10+(Integer.parseInt(p[1])*6); targetP2X=10+(Integer.parseInt(p[2])*6); }
-        else if (msg.equals("SETUP:LEFT")) { isLeftPlayer=true; myX=50; enemyX=800; }
-        else if (msg.equals("SETUP:RIGHT")) { isLeftPlayer=false; myX=800; enemyX=50; }
-        else if (msg.startsWith("ENEMY_POS:")) { String[] p=msg.split(":"); enemyX=Integer.parseInt(p[1]); enemyY=Integer.parseInt(p[2]); }
-        else if (msg.equals("ENEMY_SHOOT")) enemyBullets.add(new Bullet(enemyX+(isLeftPlayer?-10:40), enemyY+15));
-        else if (msg.startsWith("HP:")) { String[] p=msg.split(":"); if(isLeftPlayer){myHP=Integer.parseInt(p[1]); enemyHP=Integer.parseInt(p[2]);}else{myHP=Integer.parseInt(p[2]); enemyHP=Integer.parseInt(p[1]);} }
-        else if (msg.equals("ENEMY_HIT_CONFIRM")) createExplosion(enemyX, enemyY);
+        else if (msg.startsWith("SPACE_SEAT:")) { mySeat=Integer.parseInt(msg.substring(11)); sentKeys=-1; }
         else if (msg.startsWith("BOARD:")) {
             String b = msg.substring(6);
             if(b.contains(",")) { 
@@ -680,14 +796,82 @@ public class GameClient {
             }
             else for(int i=0;i<9;i++) { char c=b.charAt(i); tttButtons[i].setText(c=='-'?"":c+""); tttButtons[i].setForeground(c=='X'?COL_ACCENT_MAGENTA:COL_ACCENT_CYAN); }
         }
-        else if (msg.startsWith("SNAKE:")) snakePanel.updateState(msg.substring(6));
         else if (msg.startsWith("HINT:")) guessHintLabel.setText(msg.substring(5));
         else chatArea.append(msg+"\n");
         chatArea.setCaretPosition(chatArea.getDocument().getLength());
     }
 
-    private void login() { username=JOptionPane.showInputDialog("ENTER AGENT NAME:"); if(username!=null) out.println(username); else System.exit(0); }
-    private void startListener() { new Thread(()->{try{while(true)processMessage(in.readLine());}catch(Exception e){}}).start(); }
+    private void login() { username=JOptionPane.showInputDialog("ENTER AGENT NAME:"); if(username==null) System.exit(0); out.println(FrameReader.PROTO_SNAKE_DELTA); if(useBinary) out.println(FrameReader.PROTO_COMMAND); out.println(username); }
+    private void startListener() { new Thread(()->{try{
+        while(true) { String line=in.readLine(); if(line==null) return; if(FrameReader.PROTO_ACK.equals(line)) { listenBinary(); return; } decodeText(line); }
+    }catch(Exception e){}}).start(); }
+
+    // After PROTO:BINARY every message is a frame; real-time state is read straight out of the payload
+    private void listenBinary() throws IOException {
+        if(useUdp) out.println("/udp");
+        while(true) decodeFrame(in.readFrame(), in);
+    }
+
+    // --- DECODE (network threads) ---
+    // Parse here, publish to whoever owns it: game state to the render loops (newest wins), everything else to the EDT in order
+    private void decodeText(String msg) {
+        try {
+            if (msg.startsWith("SNAKE:")) snakeFrames.publish(decodeSnake(msg.substring(6)), true);
+            else if (msg.startsWith("SNAKE_D:")) snakeFrames.publish(decodeSnakeDelta(msg.substring(8)), false);
+            else if (msg.startsWith("SPACE:")) publishSpace(new SpaceWorld(msg));
+            else if (msg.startsWith("SURV_STATE:")) survivalStates.publish(new SurvState(msg));
+            else ui.publish(msg);
+        } catch(RuntimeException e) {} // Malformed state: the next frame replaces it
+    }
+    private void decodeFrame(int op, FrameReader r) {
+        if(op==FrameReader.OP_TEXT) decodeText(r.text());
+        else if(op==FrameReader.OP_SNAKE) snakeFrames.publish(decodeSnake(r), true);
+        else if(op==FrameReader.OP_SNAKE_DELTA) snakeFrames.publish(decodeSnakeDelta(r), false);
+        else if(op==FrameReader.OP_SPACE) publishSpace(decodeSpace(r));
+        else if(op==FrameReader.OP_SURVIVAL) survivalStates.publish(decodeSurvival(r));
+        else if(op==FrameReader.OP_ROGUE_MAP) ui.publish(decodeRogueMap(r));
+        else if(op==FrameReader.OP_ROGUE_DELTA) ui.publish(decodeRogueDelta(r));
+        else if(op==FrameReader.OP_SEQUENCED) { int seq=r.u32(), inner=r.unwrap(); if(freshSeq(inner, seq)) decodeFrame(inner, r); } // Too big for UDP, same stale check
+    }
+
+    // UDP:<port>:<token> - send the token until the server acks over TCP, then read state datagrams.
+    // Each is [sequence:4][frame]; anything older than what we already applied for that opcode is dropped.
+    private void startUdp(String msg) {
+        try {
+            String[] p=msg.split(":"); long token=Long.parseLong(p[2]);
+            udp=new DatagramSocket(); udp.connect(socket.getInetAddress(), Integer.parseInt(p[1])); // Same host as the TCP connection
+            byte[] hello=new byte[8]; for(int i=0;i<8;i++) hello[i]=(byte)(token>>>(56-8*i));
+            new Thread(()->{ try { for(int i=0;i<20 && !udpAcked;i++) { udp.send(new DatagramPacket(hello, 8)); Thread.sleep(250); } } catch(Exception e){} }).start();
+            new Thread(this::listenUdp).start();
+        } catch(Exception e) { udp=null; }
+    }
+    private void listenUdp() {
+        byte[] data=new byte[2048]; DatagramPacket packet=new DatagramPacket(data, data.length); FrameReader r=new FrameReader();
+        try { while(true) {
+            packet.setLength(data.length); udp.receive(packet); int n=packet.getLength(); if(n<6) continue;
+            int seq=((data[0]&0xFF)<<24)|((data[1]&0xFF)<<16)|((data[2]&0xFF)<<8)|(data[3]&0xFF), op=data[4]&0xFF;
+            if(op==FrameReader.OP_TEXT || op==FrameReader.OP_SEQUENCED || !freshSeq(op, seq)) continue;
+            r.readFrame(data, 4, n-4);
+            decodeFrame(op, r);
+        } } catch(Exception e) {}
+    }
+    // False if a newer frame of this opcode was already applied (late or reordered); UDP and TCP listeners both ask
+    private boolean freshSeq(int op, int seq) { synchronized(udpLastSeq) { if(seq-udpLastSeq[op]<=0) return false; udpLastSeq[op]=seq; return true; } }
+
+    // No rogue view yet: rebuild the text lines so they show up exactly as in text mode
+    private String decodeRogueMap(FrameReader in) {
+        int w=in.varint(), h=in.varint(); StringBuilder sb=new StringBuilder("ROGUE_MAP:").append(w).append(",").append(h).append(":");
+        int packed=0, tile=-1, run=0;
+        for(int i=0;i<w*h;i++) { if(i%4==0) packed=in.u8(); int t=(packed>>((i%4)*2))&3; if(t==tile) { run++; continue; } if(run>0) sb.append(tile).append("*").append(run).append(","); tile=t; run=1; }
+        return sb.append(tile).append("*").append(run).append(",").toString();
+    }
+    private String decodeRogueDelta(FrameReader in) {
+        int flags=in.u8(); StringBuilder sb=new StringBuilder("ROGUE_D:").append(((flags>>2)&1)|((flags>>2)&2)).append(":");
+        if((flags&1)!=0) sb.append(in.varint()).append(",").append(in.varint()); sb.append(":");
+        if((flags&2)!=0) sb.append(in.varint()).append(",").append(in.varint()); sb.append(":");
+        for(int n=in.varint(); n>0; n--) sb.append(in.varint()).append(",").append(in.varint()).append(",").append(in.varint()).append(",");
+        return sb.toString();
+    }
 
     public static void main(String[] args) { 
         try { UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName()); } catch(Exception e){}
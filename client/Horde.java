@@ -0,0 +1,188 @@
+package client;
+
+import java.util.Arrays;
+
+/**
+ * Zombies and bullets of a local Crimson Survival run, kept in flat float arrays
+ * (one array per field, swap-remove) so thousands of zombies cost no objects and
+ * no boxing.
+ *
+ * Every frame:
+ * - One flow field for the whole horde: a unit vector per grid cell pointing at the
+ *   player, so moving a zombie is a table lookup instead of atan2/cos/sin per zombie.
+ *   (Open ground: the vectors point straight at the player. Walls would turn this
+ *   into a BFS over the same cells.)
+ * - A uniform grid of CELL-sized cells rebuilt with a counting sort; bullets and the
+ *   player only test the zombies in the 3x3 cells around them instead of all of them.
+ */
+public class Horde {
+    public static final int CELL = 32; // Wider than HIT and the bite distance, so 3x3 cells cover every hit
+    static final float HIT = 30f;       // A bullet this close (per axis) kills
+
+    public final float[] zx, zy, zspeed;
+    public int zombies = 0;
+    public final float[] bx, by, bvx, bvy;
+    public int bullets = 0;
+    public int bitten = 0; // Zombies within bite range of the player after the last step
+    private final boolean[] dead;
+
+    // Grid over the panel plus one cell of margin, where zombies spawn
+    private int cols, rows, width, height;
+    private int[] cellStart = new int[1], cellItems, zcell;
+    private float[] flowX = new float[0], flowY = new float[0];
+
+    public Horde(int maxZombies, int maxBullets) {
+        zx = new float[maxZombies]; zy = new float[maxZombies]; zspeed = new float[maxZombies];
+        dead = new boolean[maxZombies]; cellItems = new int[maxZombies]; zcell = new int[maxZombies];
+        bx = new float[maxBullets]; by = new float[maxBullets]; bvx = new float[maxBullets]; bvy = new float[maxBullets];
+    }
+
+    // Empty the arena and size the grid for a width x height panel
+    public void reset(int width, int height) {
+        zombies = 0;
+        bullets = 0;
+        this.width = width;
+        this.height = height;
+        cols = width / CELL + 3;
+        rows = height / CELL + 3;
+        if (cellStart.length != cols * rows + 1) {
+            cellStart = new int[cols * rows + 1];
+            flowX = new float[cols * rows];
+            flowY = new float[cols * rows];
+        }
+    }
+
+    public boolean spawn(float x, float y, float speed) {
+        if (zombies == zx.length) return false;
+        zx[zombies] = x; zy[zombies] = y; zspeed[zombies] = speed; dead[zombies] = false;
+        zombies++;
+        return true;
+    }
+
+    public boolean fire(float x, float y, float vx, float vy) {
+        if (bullets == bx.length) return false;
+        bx[bullets] = x; by[bullets] = y; bvx[bullets] = vx; bvy[bullets] = vy;
+        bullets++;
+        return true;
+    }
+
+    // One frame: the horde walks towards (px, py), bullets fly and kill, and whoever is
+    // within bite of the player is counted in bitten. Returns the kills.
+    public int step(float px, float py, float bite) {
+        buildFlowField(px, py);
+        int playerCell = cellOf(px, py);
+        for (int z = 0; z < zombies; z++) {
+            int c = cellOf(zx[z], zy[z]);
+            if (c == playerCell) { // Last stretch: straight at the player
+                float dx = px - zx[z], dy = py - zy[z], d2 = dx * dx + dy * dy;
+                if (d2 > 1f) {
+                    float s = zspeed[z] / (float) Math.sqrt(d2);
+                    zx[z] += dx * s;
+                    zy[z] += dy * s;
+                }
+            } else {
+                zx[z] += flowX[c] * zspeed[z];
+                zy[z] += flowY[c] * zspeed[z];
+            }
+        }
+        buildGrid();
+
+        int kills = 0;
+        for (int b = bullets - 1; b >= 0; b--) {
+            bx[b] += bvx[b];
+            by[b] += bvy[b];
+            boolean gone = bx[b] < 0 || bx[b] > width || by[b] < 0 || by[b] > height;
+            if (!gone) {
+                int z = near(bx[b], by[b], HIT);
+                if (z >= 0) {
+                    dead[z] = true;
+                    kills++;
+                    gone = true;
+                }
+            }
+            if (gone) {
+                bullets--;
+                bx[b] = bx[bullets]; by[b] = by[bullets]; bvx[b] = bvx[bullets]; bvy[b] = bvy[bullets];
+            }
+        }
+        bitten = within(px, py, bite);
+        if (kills > 0) removeDead();
+        return kills;
+    }
+
+    // --- INTERNALS ---
+
+    // Live zombies within radius of (x, y)
+    private int within(float x, float y, float radius) {
+        int n = 0, cx = col(x), cy = row(y);
+        float r2 = radius * radius;
+        for (int r = Math.max(0, cy - 1); r <= Math.min(rows - 1, cy + 1); r++) {
+            for (int c = Math.max(0, cx - 1); c <= Math.min(cols - 1, cx + 1); c++) {
+                int cell = r * cols + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int z = cellItems[k];
+                    if (dead[z]) continue;
+                    float dx = zx[z] - x, dy = zy[z] - y;
+                    if (dx * dx + dy * dy < r2) n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    private void buildFlowField(float px, float py) {
+        for (int r = 0; r < rows; r++) {
+            float dy = py - ((r - 1) * CELL + CELL / 2f);
+            for (int c = 0; c < cols; c++) {
+                float dx = px - ((c - 1) * CELL + CELL / 2f);
+                float inv = 1f / (float) Math.sqrt(dx * dx + dy * dy + 1e-3f);
+                flowX[r * cols + c] = dx * inv;
+                flowY[r * cols + c] = dy * inv;
+            }
+        }
+    }
+
+    // Counting sort by cell: cellItems[cellStart[c]..cellStart[c+1]) are the zombies in cell c
+    private void buildGrid() {
+        int cells = cols * rows;
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        for (int z = 0; z < zombies; z++) {
+            int c = cellOf(zx[z], zy[z]);
+            zcell[z] = c;
+            cellStart[c + 1]++;
+        }
+        for (int c = 0; c < cells; c++) cellStart[c + 1] += cellStart[c];
+        for (int z = 0; z < zombies; z++) cellItems[cellStart[zcell[z]]++] = z;
+        System.arraycopy(cellStart, 0, cellStart, 1, cells);
+        cellStart[0] = 0;
+    }
+
+    // First live zombie within hit (per axis) of (x, y), -1 if none
+    private int near(float x, float y, float hit) {
+        int cx = col(x), cy = row(y);
+        for (int r = Math.max(0, cy - 1); r <= Math.min(rows - 1, cy + 1); r++) {
+            for (int c = Math.max(0, cx - 1); c <= Math.min(cols - 1, cx + 1); c++) {
+                int cell = r * cols + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int z = cellItems[k];
+                    if (!dead[z] && Math.abs(zx[z] - x) < hit && Math.abs(zy[z] - y) < hit) return z;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void removeDead() {
+        for (int z = zombies - 1; z >= 0; z--) {
+            if (!dead[z]) continue;
+            zombies--;
+            zx[z] = zx[zombies]; zy[z] = zy[zombies]; zspeed[z] = zspeed[zombies]; dead[z] = dead[zombies];
+            dead[zombies] = false;
+        }
+    }
+
+    // Cell column / row, shifted by the margin cell and clamped (off-grid spawns land on the edge)
+    private int col(float x) { return Math.max(0, Math.min(cols - 1, (int) (x / CELL + 1))); }
+    private int row(float y) { return Math.max(0, Math.min(rows - 1, (int) (y / CELL + 1))); }
+    private int cellOf(float x, float y) { return row(y) * cols + col(x); }
+}
@@ -0,0 +1,63 @@
+package client;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Local Crimson Survival frame cost as the horde grows, headless. The horde is topped up to
+ * size every frame from the left and right edges, the player stands in the middle of a
+ * 1270x1000 arena and fires every 8 frames, as in HORDE mode. After WARM_UP frames it times
+ * Horde.step and, separately, drawing the zombies and bullets the way SurvivalPanel does
+ * into a software BufferedImage (no VolatileImage without a display, so this is the
+ * unaccelerated pipeline, not what the render loop blits).
+ *
+ * Usage: java client.HordeBenchmark [frames per size]
+ */
+public class HordeBenchmark {
+    private static final int[] HORDES = {50, 1000, 5000, 10000};
+    private static final int WARM_UP = 1000;
+    private static final int WIDTH = 1270, HEIGHT = 1000;
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        System.out.printf("60 fps budget: %.0f us/frame%n", 1e6 / 60);
+        for (int horde : HORDES) run(horde, frames);
+    }
+
+    private static void run(int size, int frames) {
+        Horde horde = new Horde(size, 256);
+        horde.reset(WIDTH, HEIGHT);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        Random random = new Random(1);
+        float px = WIDTH / 2f, py = HEIGHT / 2f;
+
+        long step = 0, draw = 0, zombieFrames = 0;
+        int kills = 0;
+        for (int f = 0; f < WARM_UP + frames; f++) {
+            while (horde.zombies < size) horde.spawn(random.nextBoolean() ? -20 : WIDTH + 20, random.nextFloat() * HEIGHT, 1.5f + random.nextFloat());
+            if (f % 8 == 0) horde.fire(px, py, (float) Math.cos(f) * 15, (float) Math.sin(f) * 15);
+
+            long start = System.nanoTime();
+            int k = horde.step(px, py, 25f);
+            long stepped = System.nanoTime();
+            g.setColor(Color.RED);
+            for (int i = 0; i < horde.zombies; i++) g.fillRect((int) horde.zx[i] - 12, (int) horde.zy[i] - 12, 24, 24);
+            g.setColor(Color.YELLOW);
+            for (int i = 0; i < horde.bullets; i++) g.fillOval((int) horde.bx[i] - 4, (int) horde.by[i] - 4, 8, 8);
+            long drawn = System.nanoTime();
+
+            if (f >= WARM_UP) {
+                step += stepped - start;
+                draw += drawn - stepped;
+                zombieFrames += horde.zombies;
+                kills += k;
+            }
+        }
+        g.dispose();
+        System.out.printf("horde %5d: step %7.1f us/frame (%5.1f ns/zombie)  draw %7.1f us/frame  kills %d%n", size,
+                step / 1e3 / frames, (double) step / Math.max(1, zombieFrames), draw / 1e3 / frames, kills);
+    }
+}
@@ -0,0 +1,97 @@
+package client;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Hand-over from the network threads (TCP listener, UDP listener) to the thread that owns
+ * what a message changes. The network side only decodes and publishes; it never touches
+ * Swing components or game fields itself.
+ *
+ * - Latest: full game state (a Galactic War or Crimson Survival snapshot). The render loop
+ *   takes it once per frame; a newer snapshot replaces one that wasn't taken yet, so a burst
+ *   of frames costs one apply, not one per frame.
+ * - Ordered: frames that build on each other (Snake keyframe + deltas). All are applied in
+ *   order, except that a keyframe drops everything still queued before it.
+ * - ForEdt: lobby, chat and widget messages. Applied in order on the EDT, a whole batch per
+ *   invokeLater instead of one event per message.
+ *
+ * All three are lock-free (CAS on an AtomicReference or ConcurrentLinkedQueue).
+ */
+public class Inbox {
+
+    public static final class Latest<T> {
+        private final AtomicReference<T> slot = new AtomicReference<>();
+
+        public void publish(T state) {
+            slot.set(state);
+        }
+
+        // The newest state since the last take, null if nothing new
+        public T take() {
+            return slot.getAndSet(null);
+        }
+
+        public void clear() {
+            slot.set(null);
+        }
+    }
+
+    public static final class Ordered<T> {
+        private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+
+        // A keyframe replaces what's queued: nothing before it matters any more (and the queue
+        // stays bounded by the keyframe interval while no loop is draining it)
+        public void publish(T frame, boolean keyframe) {
+            if (keyframe) queue.clear();
+            queue.add(frame);
+        }
+
+        public T poll() {
+            return queue.poll();
+        }
+
+        public void clear() {
+            queue.clear();
+        }
+    }
+
+    public static final class ForEdt<T> {
+        private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final Consumer<T> handler;
+        private final Runnable drain = this::drain;
+        private long failed = 0; // EDT only
+
+        public ForEdt(Consumer<T> handler) {
+            this.handler = handler;
+        }
+
+        public void publish(T message) {
+            queue.add(message);
+            if (scheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(drain);
+        }
+
+        // Clear the flag first: whatever is published from here on schedules the next batch
+        private void drain() {
+            scheduled.set(false);
+            for (T message; (message = queue.poll()) != null; ) {
+                try {
+                    handler.accept(message);
+                } catch (RuntimeException e) {
+                    // One bad message shouldn't drop the rest of the batch, but it is a bug: report the first
+                    // with its trace, then only count (as RenderLoop does for frames)
+                    if (failed++ == 0) {
+                        System.out.println(">> [EDT] Message failed, rest of the batch continues: " + e);
+                        e.printStackTrace();
+                    } else if (Long.bitCount(failed) == 1) {
+                        System.out.println(">> [EDT] " + failed + " failed messages so far, last: " + e);
+                    }
+                }
+            }
+        }
+    }
+}
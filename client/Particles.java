@@ -0,0 +1,50 @@
+package client;
+
+import java.awt.Graphics2D;
+
+/**
+ * Explosion sparks in a fixed pool: flat arrays with swap-remove, like Horde, so a
+ * burst costs no objects. When the pool is full new sparks are simply not created.
+ * Bursts arrive from the network thread while the render thread steps and draws,
+ * hence the synchronized methods (uncontended almost always).
+ */
+public class Particles {
+    private final float[] x, y, vx, vy;
+    private final int[] life;
+    private int count = 0;
+
+    public Particles(int capacity) {
+        x = new float[capacity]; y = new float[capacity];
+        vx = new float[capacity]; vy = new float[capacity];
+        life = new int[capacity];
+    }
+
+    // n sparks flying out of (px, py) for the given number of frames
+    public synchronized void burst(int px, int py, int n, int frames) {
+        for (int i = 0; i < n && count < x.length; i++, count++) {
+            x[count] = px; y[count] = py;
+            vx[count] = (float) (Math.random() * 6 - 3);
+            vy[count] = (float) (Math.random() * 6 - 3);
+            life[count] = frames;
+        }
+    }
+
+    public synchronized void update() {
+        for (int i = count - 1; i >= 0; i--) {
+            x[i] += vx[i];
+            y[i] += vy[i];
+            if (--life[i] > 0) continue;
+            count--;
+            x[i] = x[count]; y[i] = y[count]; vx[i] = vx[count]; vy[i] = vy[count]; life[i] = life[count];
+        }
+    }
+
+    // Square sparks in the current color
+    public synchronized void draw(Graphics2D g, int size) {
+        for (int i = 0; i < count; i++) g.fillRect((int) x[i], (int) y[i], size, size);
+    }
+
+    public synchronized void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,287 @@
+package client;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.KeyboardFocusManager;
+import java.awt.Toolkit;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.JComponent;
+
+/**
+ * Active rendering for a real-time game panel, instead of a Swing Timer plus repaint().
+ *
+ * One thread per running game steps the scene and draws it into a VolatileImage back
+ * buffer (in video memory where the pipeline allows), then copies that to the panel
+ * itself. Nothing waits in the RepaintManager's queue, coalesces with other repaints or
+ * queues up behind chat and lobby events on the EDT, and frames are paced against
+ * System.nanoTime deadlines rather than a Timer's delay after the previous tick.
+ *
+ * Scenes run their update() and render() on this thread; state shared with input
+ * listeners or the network must be volatile or immutable snapshots, like the rest of the
+ * client. Swing's own paints (window exposed, card shown) get the last finished frame
+ * through paintLast().
+ *
+ * F3 (or -Dclient.overlay=true) shows frame pacing: FPS, average and worst frame, late
+ * frames, GC runs and pause time per second, and bytes this thread allocated per frame.
+ * -Dclient.fps sets the frame rate (default 60).
+ */
+public class RenderLoop {
+    public interface Scene {
+        void update(); // One simulation step
+        void render(Graphics2D g, int width, int height); // Everything above the background
+    }
+
+    static final int FPS = Math.max(1, Integer.getInteger("client.fps", 60));
+    private static final long PERIOD_NANOS = 1_000_000_000L / FPS;
+    private static volatile boolean overlay = Boolean.getBoolean("client.overlay");
+    private static boolean overlayKeyInstalled = false;
+
+    private final JComponent surface;
+    private final Scene scene;
+    private final Color backgroundTop, backgroundBottom;
+    private final Stats stats = new Stats();
+    private volatile Thread thread;
+    private volatile boolean running = false;
+    private long failedFrames = 0; // Render thread only
+
+    // Guarded by this: render thread draws, EDT may blit it in paintLast
+    private VolatileImage back;
+    private BufferedImage background; // The hub's gradient, drawn once per size
+
+    public RenderLoop(JComponent surface, Scene scene, Color backgroundTop, Color backgroundBottom) {
+        this.surface = surface;
+        this.scene = scene;
+        this.backgroundTop = backgroundTop;
+        this.backgroundBottom = backgroundBottom;
+        installOverlayKey();
+    }
+
+    public void start() {
+        Thread previous;
+        synchronized (this) {
+            if (running) return;
+            previous = thread;
+        }
+        join(previous); // A loop stopped from inside its own frame may still be finishing it
+        synchronized (this) {
+            if (running) return;
+            running = true;
+            stats.reset();
+            thread = new Thread(this::run, "render");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY + 1); // Ahead of the network and sound threads
+            thread.start();
+        }
+    }
+
+    // Safe from the render thread itself (game over inside update): the loop ends after this frame
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+        }
+        join(t);
+    }
+
+    private static void join(Thread t) {
+        if (t == null || t == Thread.currentThread()) return;
+        try { t.join(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // For Swing's own paints: the last finished frame, if it still exists
+    public synchronized void paintLast(Graphics g) {
+        if (back != null && !back.contentsLost()) g.drawImage(back, 0, 0, null);
+    }
+
+    // --- LOOP ---
+
+    private void run() {
+        Thread me = Thread.currentThread();
+        long next = System.nanoTime();
+        while (running && thread == me) { // A restart hands over to a new thread even if this one overslept
+            long start = System.nanoTime();
+            try {
+                frame();
+            } catch (RuntimeException e) {
+                // A bad frame shouldn't end the game (the next one redraws everything), but it is a bug: report the
+                // first with its trace, then only count, so a frame that fails every time doesn't flood the console
+                if (failedFrames++ == 0) {
+                    System.out.println(">> [RENDER] Frame failed, game continues: " + e);
+                    e.printStackTrace();
+                } else if (Long.bitCount(failedFrames) == 1) {
+                    System.out.println(">> [RENDER] " + failedFrames + " failed frames so far, last: " + e);
+                }
+            }
+            stats.frame(start, System.nanoTime());
+
+            next += PERIOD_NANOS;
+            long wait = next - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            else if (wait < -PERIOD_NANOS) next = System.nanoTime(); // Far behind (GC, minimized): don't race to catch up
+        }
+    }
+
+    private void frame() {
+        scene.update();
+        if (!running || !surface.isShowing()) return;
+        int w = surface.getWidth(), h = surface.getHeight();
+        if (w <= 0 || h <= 0) return;
+
+        synchronized (this) {
+            GraphicsConfiguration gc = surface.getGraphicsConfiguration();
+            do {
+                if (back == null || back.getWidth() != w || back.getHeight() != h
+                        || back.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    if (back != null) back.flush();
+                    back = surface.createVolatileImage(w, h);
+                    if (back == null) return;
+                }
+                Graphics2D g = back.createGraphics();
+                try {
+                    g.drawImage(background(gc, w, h), 0, 0, null);
+                    scene.render(g, w, h);
+                    if (overlay) stats.draw(g);
+                } finally {
+                    g.dispose();
+                }
+            } while (back.contentsLost());
+
+            Graphics screen = surface.getGraphics();
+            if (screen == null) return;
+            try {
+                screen.drawImage(back, 0, 0, null);
+            } finally {
+                screen.dispose();
+            }
+        }
+        Toolkit.getDefaultToolkit().sync(); // Flush the pipeline now, not whenever the toolkit gets to it
+    }
+
+    private BufferedImage background(GraphicsConfiguration gc, int w, int h) {
+        if (background == null || background.getWidth() != w || background.getHeight() != h) {
+            background = gc.createCompatibleImage(w, h);
+            Graphics2D g = background.createGraphics();
+            g.setPaint(new GradientPaint(0, 0, backgroundTop, w, h, backgroundBottom));
+            g.fillRect(0, 0, w, h);
+            g.dispose();
+        }
+        return background;
+    }
+
+    private static synchronized void installOverlayKey() {
+        if (overlayKeyInstalled) return;
+        overlayKeyInstalled = true;
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(e -> {
+            if (e.getID() == KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_F3) overlay = !overlay;
+            return false;
+        });
+    }
+
+    // --- HUD TEXT ---
+
+    // "PREFIX value", rebuilt only when the value changes, so HUDs don't build strings every frame
+    public static final class HudText {
+        private final String prefix;
+        private int value;
+        private String text;
+
+        public HudText(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String of(int v) {
+            if (text == null || v != value) {
+                value = v;
+                text = prefix + v;
+            }
+            return text;
+        }
+    }
+
+    // --- FRAME STATS (render thread only) ---
+
+    private static final class Stats {
+        private static final Font FONT = new Font(Font.MONOSPACED, Font.BOLD, 12);
+        private static final Color BOX = new Color(0, 0, 0, 170);
+        private static final List<GarbageCollectorMXBean> GCS = ManagementFactory.getGarbageCollectorMXBeans();
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        private long windowStart, frames, late, totalNanos, worstNanos, gcCount, gcMillis, allocated;
+        private String line1 = "measuring...", line2 = "";
+
+        void reset() {
+            windowStart = 0;
+        }
+
+        void frame(long start, long end) {
+            if (windowStart == 0) {
+                windowStart = start;
+                frames = late = totalNanos = worstNanos = 0;
+                gcCount = gcCount();
+                gcMillis = gcMillis();
+                allocated = allocatedBytes();
+            }
+            long took = end - start;
+            frames++;
+            totalNanos += took;
+            worstNanos = Math.max(worstNanos, took);
+            if (took > PERIOD_NANOS) late++;
+
+            // Once a second: sample and rebuild the two lines (the only allocation here)
+            if (end - windowStart >= 1_000_000_000L) {
+                long gcs = gcCount(), gcMs = gcMillis(), bytes = allocatedBytes();
+                double seconds = (end - windowStart) / 1e9;
+                line1 = String.format("%3.0f fps  frame avg %.2f ms  worst %.2f ms  late %d",
+                        frames / seconds, totalNanos / 1e6 / frames, worstNanos / 1e6, late);
+                line2 = String.format("gc %d runs %d ms/s  alloc %s B/frame", gcs - gcCount, gcMs - gcMillis,
+                        bytes < 0 ? "?" : String.valueOf((bytes - allocated) / frames));
+                windowStart = 0;
+            }
+        }
+
+        void draw(Graphics2D g) {
+            g.setFont(FONT);
+            g.setColor(BOX);
+            g.fillRect(8, 8, 390, 40);
+            g.setColor(Color.GREEN);
+            g.drawString(line1, 14, 24);
+            g.drawString(line2, 14, 40);
+        }
+
+        private static long gcCount() {
+            long n = 0;
+            for (int i = 0; i < GCS.size(); i++) n += Math.max(0, GCS.get(i).getCollectionCount());
+            return n;
+        }
+
+        private static long gcMillis() {
+            long ms = 0;
+            for (int i = 0; i < GCS.size(); i++) ms += Math.max(0, GCS.get(i).getCollectionTime());
+            return ms;
+        }
+
+        // HotSpot's per-thread allocation counter, -1 where the JVM doesn't have one
+        private static long allocatedBytes() {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1;
+        }
+    }
+}
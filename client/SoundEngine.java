@@ -1,81 +1,169 @@
 package client;
 
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
 import javax.sound.sampled.*;
 
+/**
+ * Sound effects, synthesized once at class load into 16-bit PCM buffers and played by one
+ * long-lived mixer thread that owns a single open line.
+ *
+ * A play call only claims a voice (a buffer and a position) and wakes the mixer: no thread,
+ * no line, no allocation. The mixer sums the active voices a short chunk at a time and
+ * writes the chunk; the line buffer is only a few chunks long, so a new effect is heard
+ * within a few milliseconds. At most MAX_VOICES play at once; a new one takes over the
+ * voice with the least left to play. One voice plays at its old 8-bit loudness; when
+ * several add up past KNEE the mixer bends the sum towards full scale instead of clipping
+ * it. Without an audio device the mixer never starts and every play call does nothing,
+ * as before.
+ */
 public class SoundEngine {
 
-    public static void playShoot() {
-        new Thread(() -> generateTone(800, 150, 100, true)).start(); // High pitch slide down
+    private static final float SAMPLE_RATE = 44100;
+    private static final int MAX_VOICES = 8;
+    private static final int CHUNK_FRAMES = 256;      // ~6 ms mixed per pass
+    private static final int LINE_CHUNKS = 4;         // ~23 ms queued in the line at most
+    private static final int GAIN = 200;              // Old 8-bit amplitude (0-127) to 16-bit: one voice peaks at 20000
+    private static final int KNEE = 24000;            // Mixes stay linear up to here, then are soft-limited (see limit)
+
+    // --- EFFECTS (synthesized once) ---
+    private static final short[] SHOOT = tone(800, 150, 100, true);   // High pitch slide down
+    private static final short[] JUMP = tone(300, 200, 100, false);   // Low pitch slide up
+    private static final short[] HIT = noise(150);                    // White noise (Explosion)
+    private static final short[] SELECT = tone(1000, 50, 50, false);  // Short blip
+    private static final short[] WIN = concat(tone(400, 100, 100, false), silence(100),
+            tone(600, 100, 100, false), silence(100), tone(800, 300, 100, false));
+
+    // --- VOICES (guarded by the array) ---
+    private static final short[][] voiceSample = new short[MAX_VOICES][];
+    private static final int[] voicePos = new int[MAX_VOICES];
+
+    private static final Thread mixer = startMixer();
+
+    // Loading the class synthesizes the effects and opens the line; do it at startup, not on the first shot
+    public static void preload() {}
+
+    public static void playShoot() { play(SHOOT); }
+    public static void playJump() { play(JUMP); }
+    public static void playHit() { play(HIT); }
+    public static void playWin() { play(WIN); }
+    public static void playSelect() { play(SELECT); }
+
+    private static void play(short[] sample) {
+        if (mixer == null) return;
+        synchronized (voiceSample) {
+            int slot = 0;
+            for (int v = 0; v < MAX_VOICES; v++) {
+                if (voiceSample[v] == null) { slot = v; break; }
+                if (remaining(v) < remaining(slot)) slot = v; // All busy: steal the one closest to its end
+            }
+            voiceSample[slot] = sample;
+            voicePos[slot] = 0;
+        }
+        LockSupport.unpark(mixer);
     }
 
-    public static void playJump() {
-        new Thread(() -> generateTone(300, 200, 100, false)).start(); // Low pitch slide up
+    private static int remaining(int voice) {
+        return voiceSample[voice].length - voicePos[voice];
     }
 
-    public static void playHit() {
-        new Thread(() -> generateNoise(150)).start(); // White noise (Explosion)
+    // --- MIXER ---
+
+    private static Thread startMixer() {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+        SourceDataLine line;
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, CHUNK_FRAMES * 2 * LINE_CHUNKS);
+            line.start();
+        } catch (Exception | LinkageError e) {
+            return null; // No audio device (or headless): effects are silent
+        }
+        Thread t = new Thread(() -> mix(line), "sound-mixer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MAX_PRIORITY); // Late audio is heard as a click
+        t.start();
+        return t;
     }
 
-    public static void playWin() {
-        new Thread(() -> {
-            generateTone(400, 100, 100, false);
-            try { Thread.sleep(100); } catch(Exception e){}
-            generateTone(600, 100, 100, false);
-            try { Thread.sleep(100); } catch(Exception e){}
-            generateTone(800, 300, 100, false);
-        }).start();
+    private static void mix(SourceDataLine line) {
+        int[] acc = new int[CHUNK_FRAMES];
+        byte[] out = new byte[CHUNK_FRAMES * 2];
+        while (true) {
+            if (!mixChunk(acc)) {
+                LockSupport.park(); // Idle until the next play call; what's still in the line plays out meanwhile
+                continue;
+            }
+            for (int i = 0; i < CHUNK_FRAMES; i++) {
+                int s = limit(acc[i]);
+                out[2 * i] = (byte) s;
+                out[2 * i + 1] = (byte) (s >> 8);
+            }
+            line.write(out, 0, out.length); // Blocks while the line holds LINE_CHUNKS chunks: that paces the loop
+        }
     }
 
-    public static void playSelect() {
-        new Thread(() -> generateTone(1000, 50, 50, false)).start(); // Short blip
+    // Linear up to KNEE, then approaches full scale smoothly (same slope at the knee) and never passes it
+    private static int limit(int s) {
+        int a = Math.abs(s);
+        if (a <= KNEE) return s;
+        int room = Short.MAX_VALUE - KNEE, over = a - KNEE;
+        int out = KNEE + (int) ((long) over * room / (over + room));
+        return s < 0 ? -out : out;
     }
 
-    // --- SYNTHESIZER LOGIC ---
-    
-    // Generates a Sine Wave Tone
-    private static void generateTone(int startFreq, int durationMs, int volume, boolean slideDown) {
-        try {
-            float sampleRate = 44100;
-            byte[] buf = new byte[1];
-            AudioFormat af = new AudioFormat(sampleRate, 8, 1, true, false);
-            SourceDataLine sdl = AudioSystem.getSourceDataLine(af);
-            sdl.open(af);
-            sdl.start();
-
-            for (int i = 0; i < durationMs * (sampleRate / 1000); i++) {
-                // Calculate frequency (Slide effect)
-                double angle;
-                if (slideDown) {
-                    angle = i / (sampleRate / (startFreq - (i / 10.0))); 
-                } else {
-                    angle = i / (sampleRate / (startFreq + (i / 10.0)));
-                }
-                
-                // Math.sin generates the wave
-                buf[0] = (byte) (Math.sin(2.0 * Math.PI * angle) * volume);
-                sdl.write(buf, 0, 1);
+    // Sums one chunk of every active voice into acc; false if nothing is playing
+    private static boolean mixChunk(int[] acc) {
+        Arrays.fill(acc, 0);
+        boolean any = false;
+        synchronized (voiceSample) {
+            for (int v = 0; v < MAX_VOICES; v++) {
+                short[] sample = voiceSample[v];
+                if (sample == null) continue;
+                any = true;
+                int pos = voicePos[v], n = Math.min(CHUNK_FRAMES, sample.length - pos);
+                for (int i = 0; i < n; i++) acc[i] += sample[pos + i];
+                voicePos[v] = pos + n;
+                if (pos + n >= sample.length) voiceSample[v] = null;
             }
-            sdl.drain();
-            sdl.close();
-        } catch (Exception e) {}
+        }
+        return any;
     }
 
-    // Generates White Noise (Static)
-    private static void generateNoise(int durationMs) {
-        try {
-            float sampleRate = 44100;
-            byte[] buf = new byte[1];
-            AudioFormat af = new AudioFormat(sampleRate, 8, 1, true, false);
-            SourceDataLine sdl = AudioSystem.getSourceDataLine(af);
-            sdl.open(af);
-            sdl.start();
-
-            for (int i = 0; i < durationMs * (sampleRate / 1000); i++) {
-                buf[0] = (byte) (Math.random() * 200 - 100); // Random bytes = Noise
-                sdl.write(buf, 0, 1);
-            }
-            sdl.drain();
-            sdl.close();
-        } catch (Exception e) {}
+    // --- SYNTHESIZER LOGIC ---
+
+    // Sine wave sliding down or up from startFreq, volume on the old 8-bit scale
+    private static short[] tone(int startFreq, int durationMs, int volume, boolean slideDown) {
+        short[] s = new short[(int) (durationMs * (SAMPLE_RATE / 1000))];
+        for (int i = 0; i < s.length; i++) {
+            double angle = slideDown
+                    ? i / (SAMPLE_RATE / (startFreq - (i / 10.0)))
+                    : i / (SAMPLE_RATE / (startFreq + (i / 10.0)));
+            s[i] = (short) (Math.sin(2.0 * Math.PI * angle) * volume * GAIN);
+        }
+        return s;
+    }
+
+    // White noise (static)
+    private static short[] noise(int durationMs) {
+        short[] s = new short[(int) (durationMs * (SAMPLE_RATE / 1000))];
+        for (int i = 0; i < s.length; i++) s[i] = (short) ((Math.random() * 200 - 100) * GAIN);
+        return s;
+    }
+
+    private static short[] silence(int durationMs) {
+        return new short[(int) (durationMs * (SAMPLE_RATE / 1000))];
+    }
+
+    private static short[] concat(short[]... parts) {
+        int n = 0;
+        for (short[] p : parts) n += p.length;
+        short[] s = new short[n];
+        int at = 0;
+        for (short[] p : parts) {
+            System.arraycopy(p, 0, s, at, p.length);
+            at += p.length;
+        }
+        return s;
     }
-}
\ No newline at end of file
+}
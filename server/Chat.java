@@ -0,0 +1,211 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named chat channels instead of one server-wide broadcast.
+ *
+ * - Lobby shards ("lobby-1", "lobby-2", ...) of up to LOBBY_SHARD_SIZE players; a new
+ *   player lands in the first shard with room.
+ * - One channel per game type ("game-snake"), joined with /join snake.
+ * - One channel per match ("match-17"); while a player's game is running their chat
+ *   goes there. It disappears when its last member leaves.
+ *
+ * A message is wrapped in a single Frame, so it is encoded once per wire format and the
+ * same byte[] goes into every member's outbound queue. Joins and leaves are not announced
+ * one by one: each channel collects them and sends one digest every PRESENCE_MS, so a
+ * login storm costs one message per channel per period instead of one per player per login.
+ */
+public class Chat {
+    public static final String LOBBY = "lobby";
+    static final int LOBBY_SHARD_SIZE = 250;
+    static final long PRESENCE_MS = 2000;
+    static final int PRESENCE_NAMES = 8; // Names listed per digest line, the rest is a count
+
+    private static final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextMatchId = new AtomicInteger(1);
+
+    // Stats
+    private static final AtomicLong messages = new AtomicLong();
+    private static final AtomicLong deliveries = new AtomicLong();
+    private static final AtomicLong digests = new AtomicLong();
+
+    static {
+        Workers.repeat(Chat::flushPresence, PRESENCE_MS);
+    }
+
+    static class Channel {
+        final String name;
+        final boolean temporary; // Match channels: dropped when empty, no presence digests
+        final Set<ClientHandler> members = ConcurrentHashMap.newKeySet();
+        private final Map<Integer, String> joined = new LinkedHashMap<>(); // By session id: names can repeat
+        private final List<String> left = new ArrayList<>();
+
+        Channel(String name, boolean temporary) {
+            this.name = name;
+            this.temporary = temporary;
+        }
+
+        void add(ClientHandler client) {
+            add(client, Integer.MAX_VALUE);
+        }
+
+        // Size check and add in one step, so concurrent logins can't push a lobby shard past limit
+        synchronized boolean add(ClientHandler client, int limit) {
+            if (members.contains(client)) return true;
+            if (members.size() >= limit) return false;
+            members.add(client);
+            if (!temporary) joined.put(client.sessionId, client.username);
+            return true;
+        }
+
+        void remove(ClientHandler client) {
+            if (!members.remove(client)) return;
+            if (temporary) {
+                if (members.isEmpty()) channels.remove(name, this);
+                return;
+            }
+            synchronized (this) {
+                if (joined.remove(client.sessionId) == null) left.add(client.username); // Came and went: say nothing
+            }
+        }
+
+        // Encode once, then hand the same frame to every member
+        void publish(Frame frame, ClientHandler sender) {
+            int n = 0;
+            for (ClientHandler member : members) {
+                if (member != sender) {
+                    member.send(frame);
+                    n++;
+                }
+            }
+            messages.incrementAndGet();
+            deliveries.addAndGet(n);
+        }
+
+        // "SERVER: [lobby-1] Ann, Bob joined. Carl left." or null if nothing happened
+        synchronized String takeDigest() {
+            if (joined.isEmpty() && left.isEmpty()) return null;
+            StringBuilder sb = new StringBuilder("SERVER: [").append(name).append("]");
+            if (!joined.isEmpty()) appendNames(sb, joined.values()).append(" joined.");
+            if (!left.isEmpty()) appendNames(sb, left).append(" left.");
+            joined.clear();
+            left.clear();
+            return sb.toString();
+        }
+
+        private static StringBuilder appendNames(StringBuilder sb, Collection<String> names) {
+            sb.append(' ');
+            int i = 0;
+            for (String name : names) {
+                if (i == PRESENCE_NAMES) break;
+                if (i++ > 0) sb.append(", ");
+                sb.append(name);
+            }
+            if (names.size() > PRESENCE_NAMES) sb.append(" and ").append(names.size() - PRESENCE_NAMES).append(" more");
+            return sb;
+        }
+    }
+
+    // --- MEMBERSHIP ---
+
+    // New player: the first lobby shard with room
+    public static void enterLobby(ClientHandler client) {
+        for (int shard = 1; ; shard++) {
+            Channel ch = channels.computeIfAbsent(LOBBY + "-" + shard, k -> new Channel(k, false));
+            if (switchTo(client, ch, LOBBY_SHARD_SIZE)) return;
+        }
+    }
+
+    // /join lobby  OR  /join snake; returns false if there is no such channel
+    public static boolean join(ClientHandler client, String name) {
+        if (name.equals(LOBBY)) {
+            Channel current = client.chatChannel;
+            if (current == null || !current.name.startsWith(LOBBY + "-")) enterLobby(client);
+            return true;
+        }
+        if (!GameRegistry.resolve(name).equals(name)) return false;
+        switchTo(client, channels.computeIfAbsent("game-" + name, k -> new Channel(k, false)), Integer.MAX_VALUE);
+        return true;
+    }
+
+    // Joins the new channel before leaving the old one; false (and nothing changes) if it is full
+    private static boolean switchTo(ClientHandler client, Channel ch, int limit) {
+        Channel old = client.chatChannel;
+        if (old == ch) return true;
+        if (!ch.add(client, limit)) return false;
+        if (old != null) old.remove(client);
+        client.chatChannel = ch;
+        return true;
+    }
+
+    // Both players get a private channel for the match (leaving their previous match's one)
+    public static void openMatch(ClientHandler p1, ClientHandler p2) {
+        Channel ch = new Channel("match-" + nextMatchId.getAndIncrement(), true);
+        channels.put(ch.name, ch);
+        for (ClientHandler p : new ClientHandler[] {p1, p2}) {
+            Channel old = p.matchChannel;
+            if (old != null) old.remove(p);
+            ch.add(p);
+            p.matchChannel = ch;
+        }
+    }
+
+    // Dropping into a running co-op match: the newcomer joins that match's channel
+    public static void joinMatch(ClientHandler client, ClientHandler member) {
+        Channel ch = member.matchChannel;
+        if (ch == null || ch == client.matchChannel) return;
+        Channel old = client.matchChannel;
+        if (old != null) old.remove(client);
+        ch.add(client);
+        client.matchChannel = ch;
+    }
+
+    public static void disconnect(ClientHandler client) {
+        Channel ch = client.chatChannel, match = client.matchChannel;
+        if (ch != null) ch.remove(client);
+        if (match != null) match.remove(client);
+        client.chatChannel = null;
+        client.matchChannel = null;
+    }
+
+    // --- MESSAGES ---
+
+    // A chat line: to the match while the player's game runs, otherwise to their channel
+    public static void say(ClientHandler client, String text) {
+        Game game = client.currentGame();
+        Channel ch = (game != null && !game.isGameOver() && client.matchChannel != null)
+                ? client.matchChannel : client.chatChannel;
+        if (ch == null) return;
+        ch.publish(Frame.text(client.username + ": " + text), client);
+    }
+
+    // Name of the channel plain lines go to, and how many are in it (for /join without a name)
+    public static String where(ClientHandler client) {
+        Channel ch = client.chatChannel;
+        return ch == null ? "nowhere" : ch.name + " (" + ch.members.size() + " players)";
+    }
+
+    private static void flushPresence() {
+        for (Channel ch : channels.values()) {
+            if (ch.temporary) continue;
+            String digest = ch.takeDigest();
+            if (digest == null) continue;
+            ch.publish(Frame.text(digest), null);
+            digests.incrementAndGet();
+        }
+    }
+
+    public static String stats() {
+        return "channels=" + channels.size() + " messages=" + messages.get() + " deliveries=" + deliveries.get()
+                + " digests=" + digests.get();
+    }
+}
@@ -2,150 +2,393 @@ package server;
 
 import java.io.*;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ClientHandler implements Runnable {
     private Socket socket;
     private BufferedReader in;
-    private PrintWriter out;
+    private NioConnection connection; // Only set in NIO transport mode
+    private final OutboundQueue outbound = new OutboundQueue(); // Drained by writeLoop or the NIO loop
+    private volatile boolean binaryProtocol = false; // Negotiated with "/proto binary" before login
+    private volatile boolean snakeDeltas = false;    // Negotiated with "/proto snake-delta" before login
+    private volatile boolean connected = true;
+    private volatile SocketAddress udpAddress;       // Real-time state goes here once "/udp" is set up (see UdpChannel)
+    private final AtomicInteger udpSeq = new AtomicInteger();
     
     // Identity
-    public String username;
+    public final int sessionId = ClientManager.nextSessionId(); // Unique per connection, never reused
+    public String username;                                      // Display name, may be shared
     
     // State Management
-    public Game currentGame;          // The actual game object
-    public String waitingForGameType = null; // What game is this user waiting for?
+    volatile Seat seat;                        // Current game and this player's place in it, null before the first
+    volatile Matchmaker.Ticket ticket = null; // Place in a matchmaking queue, if waiting
+    volatile Chat.Channel chatChannel;        // Where chat goes: a lobby shard or a game-type channel
+    volatile Chat.Channel matchChannel;       // The current (or last) match's channel
 
     public ClientHandler(Socket socket) {
         this.socket = socket;
     }
 
+    // Used by the NIO transport: no socket, the event loop owns the channel
+    public ClientHandler(NioConnection connection) {
+        this.connection = connection;
+    }
+
     @Override
     public void run() {
         try {
             // 1. Setup Streams
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream(), true);
+            in = new BufferedReader(new InputStreamReader(new FilterInputStream(socket.getInputStream()) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    limits.stamp(); // One socket read = one batch of lines for the rate limiter
+                    return n;
+                }
+            }, StandardCharsets.UTF_8));
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+            Workers.start("writer", () -> writeLoop(out));
 
             // 2. Authentication Protocol
-            out.println("SERVER: Enter your username:");
-            this.username = in.readLine();
-            
-            // Basic validation
-            if (this.username == null || this.username.trim().isEmpty()) {
-                this.username = "User-" + System.currentTimeMillis();
+            greet();
+            while (!isLoggedIn()) {
+                login(in.readLine());
             }
-            
-            // Register with the Manager
-            ClientManager.addClient(this);
-            System.out.println(">> [LOGIN] " + username + " connected.");
-            ClientManager.broadcast("SERVER: " + username + " has joined the lobby!", this);
 
             // 3. Main Command Loop
             String input;
             while ((input = in.readLine()) != null) {
-                
-                // --- COMMAND: PLAY ---
-                // Usage: /play snake solo  OR  /play tictactoe
-                if (input.startsWith("/play")) {
-                    String[] parts = input.split(" ");
-                    String gameType = (parts.length > 1) ? parts[1].toLowerCase() : "tictactoe"; 
-                    String mode = (parts.length > 2) ? parts[2].toLowerCase() : "pvp";
-
-                    // 1. CHECK FOR SOLO MODES (Skip Matchmaking)
-                    if (mode.equals("solo")) {
-                        if (gameType.equals("snake")) {
-                            Game newGame = new SnakeBattle(this, null); // Null opponent = Bot
-                            this.currentGame = newGame;
-                            System.out.println(">> [SOLO] Started Snake vs Bot for " + this.username);
-                        }
-                        else if (gameType.equals("rogue")) {
-                            Game newGame = new ShadowRogue(this, null); // Null opponent = Solo Dungeon
-                            this.currentGame = newGame;
-                            System.out.println(">> [SOLO] Started Shadow Rogue for " + this.username);
-                        }
-                        else {
-                            out.println("SERVER: Solo mode not available for " + gameType);
-                        }
-                        continue; // Skip the rest of the loop
-                    }
-
-                    // 2. CHECK FOR PVP MATCHMAKING
-                    // Ask Manager to find an opponent waiting for the SAME game
-                    ClientHandler opponent = ClientManager.findOpponent(this, gameType);
-                    
-                    if (opponent != null) {
-                        // FOUND A MATCH!
-                        Game newGame;
-                        
-                        // --- FACTORY: Create the specific game ---
-                        if (gameType.equals("rps")) {
-                            newGame = new RockPaperScissors(this, opponent);
-                        } 
-                        else if (gameType.equals("guess")) {
-                            newGame = new GuessNumber(this, opponent);
-                        } 
-                        else if (gameType.equals("memory")) { 
-                            newGame = new MemoryGame(this, opponent);
-                        }
-                        else if (gameType.equals("sprint")) {
-                            newGame = new CyberSprint(this, opponent);
-                        }
-                        else if (gameType.equals("space")) { 
-                            newGame = new GalacticWar(this, opponent);
-                        }
-                        else if (gameType.equals("snake")) {
-                            newGame = new SnakeBattle(this, opponent);
-                        }
-                        else if (gameType.equals("rogue")) {
-                            newGame = new ShadowRogue(this, opponent);
-                        }
-                        else {
-                            // Default is TicTacToe
-                            newGame = new TicTacToe(this, opponent);
-                        }
-                        
-                        // Assign the game to both players
-                        this.currentGame = newGame;
-                        opponent.currentGame = newGame;
-                        
-                        System.out.println(">> [MATCH] Started " + gameType + ": " + this.username + " vs " + opponent.username);
-                    } else {
-                        // NO MATCH YET -> WAIT
-                        this.waitingForGameType = gameType; 
-                        out.println("SERVER: Waiting for an opponent for " + gameType + "...");
-                    }
-                }
-                
-                // --- COMMAND: MOVE ---
-                // Usage: /move 4  OR  /move UP
-                else if (input.startsWith("/move ") && currentGame != null) {
-                    try {
-                        String moveCommand = input.substring(6).trim(); 
-                        currentGame.makeMove(username, moveCommand);
-                    } catch (Exception e) {
-                        out.println("INVALID: Error processing move.");
-                    }
-                }
-
-                // --- COMMAND: LEADERBOARD ---
-                else if (input.equalsIgnoreCase("/leaderboard")) {
-                    out.println("SERVER: TOP PLAYERS: " + Leaderboard.getTopScores());
-                }
-                
-                // --- COMMAND: CHAT ---
-                else {
-                    ClientManager.broadcast(username + ": " + input, this);
-                }
+                handleCommand(input);
             }
         } catch (IOException e) {
             System.out.println(">> [DISCONNECT] " + username + " lost connection.");
         } finally {
-            ClientManager.removeClient(this);
+            disconnect();
             try { socket.close(); } catch (IOException e) { e.printStackTrace(); }
         }
     }
 
+    // --- TRANSPORT-INDEPENDENT PROTOCOL ---
+    // The blocking reader loop above and the NIO event loops both drive these.
+
+    public void greet() {
+        sendMessage("SERVER: Enter your username:");
+    }
+
+    public boolean isLoggedIn() {
+        return username != null;
+    }
+
+    public void login(String name) {
+        // Optional protocol negotiation before the username
+        if (WireProtocol.PROTO_COMMAND.equals(name)) {
+            sendMessage(WireProtocol.PROTO_ACK); // Last text line; binary frames from here on
+            binaryProtocol = true;
+            return;
+        }
+        if (WireProtocol.PROTO_SNAKE_DELTA.equals(name)) {
+            snakeDeltas = true;
+            return;
+        }
+
+        this.username = cleanName(name);
+
+        // Basic validation
+        if (this.username.isEmpty()) {
+            this.username = "User-" + sessionId;
+        }
+
+        // Register with the Manager
+        ClientManager.addClient(this);
+        System.out.println(">> [LOGIN] " + username + " connected (session " + sessionId + ").");
+        Chat.enterLobby(this); // Announced in the lobby's next presence digest
+    }
+
+    // Names are score keys: no ':' (the score log's separator) or control characters,
+    // and short enough for a ScoreStore record (MAX_NAME_BYTES of UTF-8)
+    static final int MAX_NAME_CHARS = 20, MAX_NAME_BYTES = 40;
+
+    static String cleanName(String name) {
+        if (name == null) return "";
+        StringBuilder sb = new StringBuilder();
+        int bytes = 0;
+        for (int i = 0, cp; i < name.length() && sb.length() < MAX_NAME_CHARS; i += Character.charCount(cp)) {
+            cp = name.codePointAt(i);
+            if (cp == ':' || Character.isISOControl(cp)) continue;
+            int len = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (bytes + len > MAX_NAME_BYTES) break;
+            bytes += len;
+            sb.appendCodePoint(cp);
+        }
+        return sb.toString().trim();
+    }
+
+    // --- COMMANDS ---
+    // Looked up by verb in one table; anything that isn't a command is chat (see Chat)
+    private static final CommandRegistry COMMANDS = new CommandRegistry()
+            .register("/play", RateLimiter.COMMAND, ClientHandler::play)
+            .register("/cancel", RateLimiter.COMMAND, ClientHandler::cancel)
+            .register("/move", RateLimiter.MOVE, ClientHandler::move)
+            .register("/leaderboard", RateLimiter.COMMAND, ClientHandler::leaderboard)
+            .register("/rank", RateLimiter.COMMAND, ClientHandler::rank)
+            .register("/stats", RateLimiter.COMMAND, ClientHandler::stats)
+            .register("/join", RateLimiter.CHAT, ClientHandler::join)
+            .register("/udp", RateLimiter.COMMAND, ClientHandler::udp);
+
+    private final Move move = new Move(); // Reused for every /move (see Move)
+    RateLimiter limits = new RateLimiter();
+
+    public void handleCommand(String input) {
+        if (!COMMANDS.dispatch(this, input)) {
+            // --- CHAT ---
+            if (admit(RateLimiter.CHAT)) Chat.say(this, input);
+        }
+    }
+
+    // Rate limit one line of this class; false = drop it (persistent flooders get disconnected)
+    boolean admit(int rateClass) {
+        switch (limits.check(rateClass)) {
+            case ALLOW:
+                return true;
+            case WARN:
+                sendMessage("SERVER: Slow down, some of your " + RateLimiter.name(rateClass) + " input was dropped.");
+                return false;
+            case KICK:
+                System.out.println(">> [KICK] " + username + " flooded " + RateLimiter.name(rateClass)
+                        + " input (" + limits.stats() + "), disconnecting.");
+                close();
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    // Usage: /play snake solo  OR  /play tictactoe
+    private void play(String line, int args) {
+        String[] parts = line.substring(args).toLowerCase().split(" +");
+        String gameType = (parts[0].isEmpty()) ? GameRegistry.DEFAULT : parts[0];
+        String mode = (parts.length > 1) ? parts[1] : "pvp";
+
+        // 1. CHECK FOR SOLO MODES (Skip Matchmaking)
+        if (mode.equals("solo")) {
+            Matchmaker.cancel(this); // Leave any PvP queue first
+            Game newGame = GameRegistry.createSolo(gameType, this);
+            if (newGame == null) {
+                sendMessage("SERVER: Solo mode not available for " + gameType);
+                return;
+            }
+            joinGame(newGame, Game.P1);
+            System.out.println(">> [SOLO] Started " + gameType + " for " + this.username);
+            return; // Skip matchmaking
+        }
+
+        // 2. DROP-IN: a running co-op match of this game with a free seat
+        String resolved = GameRegistry.resolve(gameType);
+        if (GameRegistry.isRunning(resolved, currentGame())) {
+            sendMessage("SERVER: Already in a " + resolved + " match");
+            return;
+        }
+        if (GameRegistry.joinRunning(resolved, this)) {
+            Matchmaker.cancel(this);
+            return;
+        }
+
+        // 3. PVP MATCHMAKING
+        // Join the queue for this game; the match starts as soon as an opponent is there
+        Matchmaker.request(this, resolved);
+    }
+
+    // Usage: /cancel
+    private void cancel(String line, int args) {
+        Matchmaker.Ticket waiting = ticket;
+        if (waiting != null && Matchmaker.cancel(this)) {
+            sendMessage("SERVER: Left the " + waiting.gameType + " queue.");
+        } else {
+            sendMessage("SERVER: You are not waiting for a game.");
+        }
+    }
+
+    // Usage: /move 4  OR  /move UP  OR  /move POS:120:340
+    // Hot path: parsed in place into the reusable Move, no strings are created
+    private void move(String line, int args) {
+        Seat s = seat; // One read: game and seat always belong together
+        if (s == null) return;
+        move.parse(line, args);
+        try {
+            s.game.makeMove(s.number, move);
+        } catch (Exception e) {
+            sendMessage("INVALID: Error processing move.");
+        }
+    }
+
+    // Usage: /leaderboard  OR  /leaderboard snake  OR  /leaderboard snake day
+    private void leaderboard(String line, int args) {
+        String rest = line.substring(args).trim().toLowerCase();
+        String[] parts = rest.isEmpty() ? new String[0] : rest.split("\\s+"); // Trailing blanks or tabs: no arguments
+        if (parts.length == 0) {
+            sendMessage("SERVER: TOP PLAYERS: " + Leaderboard.getTopScores());
+            return;
+        }
+        String game = parts[0];
+        String window = (parts.length > 1) ? parts[1] : GameLeaderboard.ALL;
+        String top = Leaderboard.getTopScores(game, window);
+        if (top == null) sendMessage("SERVER: Unknown window " + window + " (use hour, day, week or all)");
+        else sendMessage("SERVER: TOP PLAYERS (" + game + ", " + window + "): " + top);
+    }
+
+    // Usage: /rank  OR  /rank alice
+    private void rank(String line, int args) {
+        String who = args < line.length() ? line.substring(args).trim() : username;
+        sendMessage("SERVER: RANK " + who + ": " + Leaderboard.getRank(who));
+    }
+
+    // Usage: /join  OR  /join lobby  OR  /join snake
+    private void join(String line, int args) {
+        if (args < line.length()) {
+            String name = line.substring(args).trim().toLowerCase();
+            if (!Chat.join(this, name)) {
+                sendMessage("SERVER: No channel " + name + " (use lobby or a game name)");
+                return;
+            }
+        }
+        sendMessage("SERVER: Chatting in " + Chat.where(this));
+    }
+
+    // Usage: /udp  OR  /udp off
+    private void udp(String line, int args) {
+        if (line.substring(args).trim().equalsIgnoreCase("off")) {
+            UdpChannel.forget(this);
+            udpAddress = null;
+            sendMessage("SERVER: Real-time updates back on TCP.");
+            return;
+        }
+        if (!binaryProtocol || !UdpChannel.isEnabled()) {
+            sendMessage("SERVER: UDP is not available" + (binaryProtocol ? "." : " with the text protocol."));
+            return;
+        }
+        sendMessage(UdpChannel.offer(this)); // The client answers with the token over UDP
+    }
+
+    // Handshake done: the token came back from this address
+    void attachUdp(SocketAddress address) {
+        udpAddress = address;
+        sendMessage("UDP:OK");
+        System.out.println(">> [UDP] " + username + " receives real-time state at " + address + ".");
+    }
+
+    private void stats(String line, int args) {
+        sendMessage("SERVER: TICK " + TickEngine.stats());
+        sendMessage("SERVER: MATCH " + Matchmaker.stats());
+        sendMessage("SERVER: MATCH_WAIT " + Matchmaker.waitHistogram());
+        sendMessage("SERVER: MATCH_SPREAD " + Matchmaker.spreadHistogram());
+        sendMessage("SERVER: SCORES " + Leaderboard.stats());
+        sendMessage("SERVER: CHAT " + Chat.stats());
+        sendMessage("SERVER: INPUT " + RateLimiter.totals());
+        sendMessage("SERVER: UDP " + UdpChannel.stats());
+        sendMessage("SERVER: OUT " + ClientManager.outboundStats() + " " + OutboundQueue.totals());
+        sendMessage("SERVER: YOU queued=" + outbound.depthMessages() + "/" + outbound.depthBytes() + "B max="
+                + outbound.maxDepthBytes() + "B superseded=" + outbound.superseded() + " dropped=" + outbound.dropped()
+                + " " + limits.stats() + " udp=" + (udpAddress != null ? "on" : "off"));
+    }
+
+    // Game and seat are published together, so a move can never go to one game with another's seat
+    public void joinGame(Game game, int seat) {
+        this.seat = new Seat(game, seat);
+    }
+
+    public Game currentGame() {
+        Seat s = seat;
+        return s == null ? null : s.game;
+    }
+
+    /** A game and the seat number this player has in it (Game.P1 / P2, or a co-op slot). */
+    static final class Seat {
+        final Game game;
+        final int number;
+
+        Seat(Game game, int number) {
+            this.game = game;
+            this.number = number;
+        }
+    }
+
+    public void disconnect() {
+        connected = false;
+        Matchmaker.cancel(this);
+        Chat.disconnect(this);
+        UdpChannel.forget(this);
+        outbound.close();
+        ClientManager.removeClient(this);
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    // Not over UDP: a delta is useless without every one before it
+    public boolean wantsSnakeDeltas() {
+        return snakeDeltas && udpAddress == null;
+    }
+
+    public OutboundQueue outbound() {
+        return outbound;
+    }
+
     public void sendMessage(String msg) {
-        out.println(msg);
+        if (binaryProtocol) write(WireProtocol.textFrame(msg), 0, false);
+        else write((msg + "\n").getBytes(StandardCharsets.UTF_8), 0, false);
+    }
+
+    // Real-time state: binary players get the compact encoding, everyone else the text line.
+    // Full frames of a real-time stream take UDP when it is set up (never blocks either).
+    public void send(Frame frame) {
+        SocketAddress udp = udpAddress;
+        if (udp != null && frame.stream() != 0 && !frame.isDelta()) {
+            int seq = udpSeq.incrementAndGet();
+            if (UdpChannel.send(udp, seq, frame.binary())) return;
+            // Too big for a datagram: TCP, still sequenced so a newer datagram that got there first wins
+            write(WireProtocol.sequencedFrame(seq, frame.binary()), frame.stream(), false);
+            return;
+        }
+        byte[] bytes = binaryProtocol ? frame.binary() : frame.textLine();
+        write(bytes, frame.stream(), frame.isDelta());
+    }
+
+    // Never blocks: the frame is queued and written by this connection's own writer
+    private void write(byte[] bytes, int stream, boolean delta) {
+        if (!outbound.offer(bytes, stream, delta)) {
+            System.out.println(">> [EVICT] " + username + " is not reading fast enough, disconnecting.");
+            close();
+            return;
+        }
+        if (connection != null) connection.flushLater();
+    }
+
+    // Drop the connection; the reader (thread or NIO loop) notices and runs disconnect()
+    private void close() {
+        if (connection != null) connection.closeLater();
+        else try { socket.close(); } catch (IOException ignored) {}
+    }
+
+    // Blocking transport: one writer per socket drains the whole queue, then flushes once
+    private void writeLoop(OutputStream out) {
+        ArrayList<byte[]> batch = new ArrayList<>();
+        try {
+            while (outbound.awaitDrain(batch)) {
+                int bytes = 0;
+                for (byte[] b : batch) {
+                    out.write(b);
+                    bytes += b.length;
+                }
+                out.flush();
+                outbound.written(bytes);
+                batch.clear();
+            }
+        } catch (IOException | InterruptedException e) {
+            // Reader thread notices the dead socket and cleans up
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,54 +1,37 @@
 package server;
 
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ClientManager {
-    // Thread-safe list to store all connected players
-    public static final List<ClientHandler> clients = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger nextId = new AtomicInteger(1);
 
-    // Add a player to the list when they connect
+    // All logged-in players by session ID (names can repeat, IDs can't)
+    private static final Map<Integer, ClientHandler> clients = new ConcurrentHashMap<>();
+
+    public static int nextSessionId() {
+        return nextId.getAndIncrement();
+    }
+
+    // Add a player to the map when they log in
     public static void addClient(ClientHandler client) {
-        clients.add(client);
+        clients.put(client.sessionId, client);
     }
 
     // Remove a player when they disconnect
     public static void removeClient(ClientHandler client) {
-        clients.remove(client);
-    }
-
-    // Broadcast a message to everyone (Global Chat)
-    public static void broadcast(String message, ClientHandler sender) {
-        for (ClientHandler client : clients) {
-            // Don't echo the message back to the person who sent it
-            if (client != sender) {
-                client.sendMessage(message);
-            }
-        }
+        clients.remove(client.sessionId, client);
     }
 
-    /**
-     * Matchmaking Logic:
-     * Finds an opponent who is:
-     * 1. NOT the person asking (requestor)
-     * 2. NOT currently in a game
-     * 3. Waiting for the SAME game type (e.g., both want "rps")
-     */
-    public static ClientHandler findOpponent(ClientHandler requestor, String gameType) {
-        for (ClientHandler client : clients) {
-            if (client != requestor 
-                && client.currentGame == null 
-                && gameType.equalsIgnoreCase(client.waitingForGameType)) {
-                
-                // Match Found!
-                
-                // Clear the waiting status for both
-                client.waitingForGameType = null;
-                requestor.waitingForGameType = null;
-                
-                return client;
-            }
+    // Outbound queue depth across all players (for /stats)
+    public static String outboundStats() {
+        long total = 0, max = 0;
+        for (ClientHandler client : clients.values()) {
+            long depth = client.outbound().depthBytes();
+            total += depth;
+            max = Math.max(max, depth);
         }
-        return null; // No match found yet
+        return "queuedBytes=" + total + " maxQueue=" + max;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package server;
+
+/**
+ * Table of slash commands keyed by verb ("/play", "/move", ...).
+ *
+ * The verb is hashed straight out of the input line (ASCII case-insensitive) and
+ * looked up in a small open-addressing table, so dispatch costs one pass over the
+ * verb and one compare, and allocates nothing. The handler gets the whole line
+ * plus the index of its first argument and reads the arguments in place.
+ *
+ * Each verb belongs to a RateLimiter class; the client's limiter gets a say before
+ * the command runs.
+ */
+public class CommandRegistry {
+    public interface Command {
+        // args = index of the first non-space character after the verb (line.length() if none)
+        void run(ClientHandler client, String line, int args);
+    }
+
+    private static final int SLOTS = 64; // Power of two, well above the number of commands
+
+    private final String[] verbs = new String[SLOTS];
+    private final Command[] commands = new Command[SLOTS];
+    private final int[] rateClasses = new int[SLOTS];
+    private int size = 0;
+
+    public CommandRegistry register(String verb, int rateClass, Command command) {
+        if (size >= SLOTS / 2) throw new IllegalStateException("Command table full");
+        String key = verb.toLowerCase();
+        int slot = hash(key, 0, key.length()) & (SLOTS - 1);
+        while (verbs[slot] != null) {
+            if (verbs[slot].equals(key)) throw new IllegalArgumentException("Duplicate command " + verb);
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        verbs[slot] = key;
+        commands[slot] = command;
+        rateClasses[slot] = rateClass;
+        size++;
+        return this;
+    }
+
+    // Runs the command the line starts with (unless rate limited); false if it isn't a registered one
+    public boolean dispatch(ClientHandler client, String line) {
+        int end = line.indexOf(' ');
+        if (end < 0) end = line.length();
+        int len = end;
+
+        for (int slot = hash(line, 0, len) & (SLOTS - 1); verbs[slot] != null; slot = (slot + 1) & (SLOTS - 1)) {
+            String verb = verbs[slot];
+            if (verb.length() == len && sameVerb(line, verb)) {
+                if (!client.admit(rateClasses[slot])) return true; // Dropped
+                int args = end;
+                while (args < line.length() && line.charAt(args) == ' ') args++;
+                commands[slot].run(client, line, args);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameVerb(String line, String verb) {
+        for (int i = 0; i < verb.length(); i++) {
+            char c = line.charAt(i);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            if (c != verb.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int hash(String s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            h = 31 * h + c;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,67 @@
+package server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Measures what one idle, not-yet-logged-in connection costs in each thread mode.
+ * Opens N loopback sockets against real ClientHandlers (blocked in readLine for the
+ * username, like a player sitting on the login prompt) and compares heap and RSS.
+ * Each blocking connection has two threads, its reader and its writer, and both are counted.
+ *
+ * Usage: java server.ConnectionFootprint platform|virtual [connections]
+ */
+public class ConnectionFootprint {
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "platform";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        if (mode.equals("virtual") && !Workers.useVirtualThreads(true)) return;
+
+        ExecutorService executor = Workers.connectionExecutor(count);
+        List<Socket> clients = new ArrayList<>();
+
+        try (ServerSocket server = new ServerSocket(0, count, InetAddress.getLoopbackAddress())) {
+            long heapBefore = usedHeap(), rssBefore = rss();
+            int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            for (int i = 0; i < count; i++) {
+                clients.add(new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort()));
+                executor.execute(new ClientHandler(server.accept()));
+            }
+            Thread.sleep(500); // Let every handler reach its blocking read
+
+            long heap = usedHeap() - heapBefore, mem = rss() - rssBefore;
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+            System.out.println("mode=" + mode + " connections=" + count + " platformThreads=+" + threads
+                    + " (" + (threads / (double) count) + "/conn, expected " + ServerMain.THREADS_PER_BLOCKING_CONNECTION + ")");
+            System.out.println("heap/conn=" + (heap / count) + " B, rss/conn=" + (mem < 0 ? "n/a" : (mem / count) + " B"));
+        } finally {
+            for (Socket s : clients) { try { s.close(); } catch (IOException ignored) {} }
+            executor.shutdownNow();
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // Resident set size in bytes (Linux only, -1 elsewhere)
+    private static long rss() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+            }
+        } catch (IOException | NumberFormatException ignored) {}
+        return -1;
+    }
+}
@@ -0,0 +1,512 @@
+package server;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Crimson Survival, co-op for 1-8 players against a horde simulated on the server.
+ *
+ * Players report where they are and where they aim ("/move SURV:x:y:angle:shoot", see
+ * Move.Type.AIM); the server limits how far that can move them per tick and owns
+ * everything else: zombies, bullets, ammo, hits, damage and waves. A PvP match starts
+ * with two players and stays open, so later "/play survival" requests drop into it
+ * until it has MAX_PLAYERS. Players who go down get back up at the next wave; the game
+ * is over when nobody is standing.
+ *
+ * Scale: zombies live in flat arrays (swap-remove) and are bucketed every tick into a
+ * uniform grid of CELL-sized cells (counting sort, no allocation). Bullets and players
+ * only look at the 3x3 cells around them, so collisions cost O(zombies + bullets)
+ * instead of O(zombies * bullets). Each player gets their own snapshot with just
+ * what is in their view, nearest cells first and capped at MAX_VISIBLE_ZOMBIES, in
+ * view-relative coordinates that fit a byte, so bytes per client stay flat however
+ * big the horde gets.
+ */
+public class CrimsonSurvival implements TickableGame {
+    public static final int MAX_PLAYERS = 8;
+    static final long TICK_MS = 33;
+
+    // World and view, in the client's pixels; view coordinates are sent divided by QUANT
+    static final int WORLD_W = 2400, WORLD_H = 1800;
+    static final int VIEW_W = 1270, VIEW_H = 1000, QUANT = 5;
+    static final int MAX_VISIBLE_ZOMBIES = 400, MAX_VISIBLE_BULLETS = 64; // Keeps a snapshot in one datagram
+
+    // Players
+    static final int PLAYER_HP = 100, MAX_STEP = 14, START_AMMO = 30, AMMO_PER_KILL = 2, MAX_AMMO = 999;
+    static final int FIRE_COOLDOWN_TICKS = 4, BULLET_SPEED = 30, BULLET_TICKS = 30;
+    static final int FLAG_FIRED = 1, FLAG_HIT = 2, FLAG_DOWN = 4;
+
+    // Zombies: a bullet hits within HIT_BOX, a zombie within TOUCH of a player bites
+    static final int MAX_ZOMBIES = 8192, MAX_BULLETS = 256;
+    static final float ZOMBIE_SPEED = 4f;
+    static final int HIT_BOX = 24, TOUCH = 20, TOUCH_DAMAGE = 1;
+
+    // Waves: WAVE_ZOMBIES per player per wave number, a pause between waves
+    static final int WAVE_ZOMBIES = 30, WAVE_PAUSE_TICKS = 90, SPAWN_PER_TICK = 4;
+
+    // Broadphase grid; a cell is wider than HIT_BOX and TOUCH, so 3x3 cells cover every hit
+    static final int CELL = 60, COLS = WORLD_W / CELL, ROWS = WORLD_H / CELL;
+
+    // Running co-op matches that still have a free seat
+    private static final Set<CrimsonSurvival> open = ConcurrentHashMap.newKeySet();
+
+    // --- PLAYERS (one slot per seat; seats below `joined` are taken) ---
+    private final ClientHandler[] players = new ClientHandler[MAX_PLAYERS];
+    private volatile int joined = 0;
+    private final boolean[] active = new boolean[MAX_PLAYERS]; // Spawned and still connected
+    private final float[] px = new float[MAX_PLAYERS], py = new float[MAX_PLAYERS], aim = new float[MAX_PLAYERS];
+    private final int[] hp = new int[MAX_PLAYERS], ammo = new int[MAX_PLAYERS], cooldown = new int[MAX_PLAYERS];
+    private final int[] kills = new int[MAX_PLAYERS], flags = new int[MAX_PLAYERS];
+    // Latest input per seat, written by the players' readers: x, y, angle in milliradians, trigger
+    private final AtomicIntegerArray inX = new AtomicIntegerArray(MAX_PLAYERS), inY = new AtomicIntegerArray(MAX_PLAYERS);
+    private final AtomicIntegerArray inAngle = new AtomicIntegerArray(MAX_PLAYERS), inFire = new AtomicIntegerArray(MAX_PLAYERS);
+
+    // --- ZOMBIES (struct of arrays, swap-remove) ---
+    private final float[] zx = new float[MAX_ZOMBIES], zy = new float[MAX_ZOMBIES], zspeed = new float[MAX_ZOMBIES];
+    private final boolean[] zdead = new boolean[MAX_ZOMBIES];
+    private int zombies = 0;
+
+    // --- BULLETS ---
+    private final float[] bx = new float[MAX_BULLETS], by = new float[MAX_BULLETS], bvx = new float[MAX_BULLETS], bvy = new float[MAX_BULLETS];
+    private final int[] bowner = new int[MAX_BULLETS], blife = new int[MAX_BULLETS];
+    private int bullets = 0;
+
+    // --- GRID (cellStart[c]..cellStart[c+1] index cellItems) ---
+    private final int[] cellStart = new int[COLS * ROWS + 1], cellItems = new int[MAX_ZOMBIES], zcell = new int[MAX_ZOMBIES];
+
+    private volatile boolean isFinished = false;
+    private final boolean invulnerable; // Benchmarks only: players take no damage
+    private int tickCount = 0, wave = 0, toSpawn = 0, pause = WAVE_PAUSE_TICKS / 3, teamKills = 0;
+
+    // PvP: a co-op match that others can join
+    public CrimsonSurvival(ClientHandler p1, ClientHandler p2) {
+        this(new ClientHandler[] {p1, p2}, true, true, false);
+    }
+
+    // Solo run, nobody drops in
+    public CrimsonSurvival(ClientHandler player) {
+        this(new ClientHandler[] {player}, false, true, false);
+    }
+
+    // scheduled = false and invulnerable = true are for benchmarks (see SurvivalBenchmark)
+    CrimsonSurvival(ClientHandler[] starting, boolean isOpen, boolean scheduled, boolean invulnerable) {
+        this.invulnerable = invulnerable;
+        for (ClientHandler p : starting) reserveSeat(p);
+        if (isOpen) open.add(this);
+        if (scheduled) TickEngine.register(this);
+    }
+
+    // --- DROP-IN (see GameRegistry.joinRunning) ---
+
+    public static boolean joinOpen(ClientHandler player) {
+        for (CrimsonSurvival game : open) {
+            ClientHandler host = game.connectedPlayer();
+            boolean seated = player.currentGame() == game;
+            int seat = game.reserveSeat(player);
+            if (seat < 0) continue;
+            player.joinGame(game, seat);
+            if (seated) return true; // Asked again from inside the match: nothing new to announce
+            if (host != null) Chat.joinMatch(player, host);
+            System.out.println(">> [MATCH] " + player.username + " joined survival (seat " + seat + ")");
+            return true;
+        }
+        return false;
+    }
+
+    // The seat is taken now; the tick spawns the player at its start
+    private synchronized int reserveSeat(ClientHandler player) {
+        if (isFinished) return -1;
+        for (int i = 0; i < joined; i++) {
+            if (players[i] == player) return i; // Already in: the same seat, not a second survivor
+        }
+        if (joined == MAX_PLAYERS) return -1;
+        int seat = joined;
+        players[seat] = player;
+        joined = seat + 1; // Publishes players[seat] to the tick
+        if (joined == MAX_PLAYERS) open.remove(this);
+        return seat;
+    }
+
+    private ClientHandler connectedPlayer() {
+        for (int i = 0; i < joined; i++) {
+            if (players[i].isConnected()) return players[i];
+        }
+        return null;
+    }
+
+    @Override
+    public long tickMillis() { return TICK_MS; }
+
+    @Override
+    public void makeMove(int seat, Move move) {
+        if (move.type != Move.Type.AIM) return;
+        inX.set(seat, move.x);
+        inY.set(seat, move.y);
+        inAngle.set(seat, Math.round(move.angle * 1000));
+        inFire.set(seat, move.number);
+    }
+
+    @Override
+    public void tick() {
+        if (isFinished) return;
+        tickCount++;
+
+        // 1. Newcomers spawn near the middle, leavers are gone
+        int seats = joined;
+        for (int i = 0; i < seats; i++) {
+            if (!active[i] && hp[i] == 0 && players[i].isConnected()) spawnPlayer(i);
+            else if (active[i] && !players[i].isConnected()) active[i] = false;
+        }
+
+        // 2. Players: follow their reported position (at most MAX_STEP a tick), aim, fire
+        int standing = 0, present = 0;
+        for (int i = 0; i < seats; i++) {
+            if (!active[i]) continue;
+            present++;
+            if (hp[i] <= 0) continue;
+            standing++;
+            px[i] = step(px[i], inX.get(i), WORLD_W);
+            py[i] = step(py[i], inY.get(i), WORLD_H);
+            aim[i] = inAngle.get(i) / 1000f;
+            if (cooldown[i] > 0) cooldown[i]--;
+            if (inFire.get(i) != 0 && cooldown[i] == 0 && ammo[i] > 0 && bullets < MAX_BULLETS) fire(i);
+        }
+
+        // 3. End: everyone left, or nobody is standing
+        if (present == 0) {
+            finish(null);
+            return;
+        }
+        if (standing == 0) {
+            finish("GAME_OVER: The horde overran you on wave " + wave + " (" + teamKills + " kills).");
+            return;
+        }
+
+        // 4. Zombies walk towards the nearest standing player, then get bucketed
+        moveZombies(seats);
+        buildGrid();
+
+        // 5. Bullets: fly, expire, or hit the first zombie in the cells around them
+        for (int b = bullets - 1; b >= 0; b--) {
+            bx[b] += bvx[b];
+            by[b] += bvy[b];
+            int z = (--blife[b] <= 0 || bx[b] < 0 || by[b] < 0 || bx[b] >= WORLD_W || by[b] >= WORLD_H)
+                    ? -2 : nearZombie(bx[b], by[b], HIT_BOX);
+            if (z == -1) continue;
+            if (z >= 0) {
+                zdead[z] = true;
+                int owner = bowner[b];
+                kills[owner]++;
+                teamKills++;
+                ammo[owner] = Math.min(MAX_AMMO, ammo[owner] + AMMO_PER_KILL);
+            }
+            removeBullet(b);
+        }
+
+        // 6. Zombies touching a standing player bite
+        for (int i = 0; i < seats; i++) {
+            if (!active[i] || hp[i] <= 0 || invulnerable) continue;
+            int bites = countNear(px[i], py[i], TOUCH);
+            if (bites == 0) continue;
+            hp[i] = Math.max(0, hp[i] - bites * TOUCH_DAMAGE);
+            flags[i] |= FLAG_HIT;
+            if (hp[i] == 0) broadcast(Frame.text("SERVER: " + players[i].username + " is down!"));
+        }
+
+        // 7. Everyone's own view
+        for (int i = 0; i < seats; i++) {
+            if (active[i]) players[i].send(new View(i));
+        }
+        Arrays.fill(flags, 0);
+
+        // 8. Dead zombies out, new ones in
+        removeDeadZombies();
+        spawnWave(present);
+    }
+
+    private static float step(float from, int to, int max) {
+        float target = Math.max(0, Math.min(max - 1, to));
+        return from + Math.max(-MAX_STEP, Math.min(MAX_STEP, target - from));
+    }
+
+    private void spawnPlayer(int i) {
+        ClientHandler p = players[i];
+        px[i] = WORLD_W / 2f + (i % 4) * 40 - 60;
+        py[i] = WORLD_H / 2f + (i / 4) * 40 - 20;
+        inX.set(i, (int) px[i]);
+        inY.set(i, (int) py[i]);
+        hp[i] = PLAYER_HP;
+        ammo[i] = START_AMMO;
+        active[i] = true;
+        p.sendMessage("GAME_START: Crimson Survival! WASD to move, mouse to aim and shoot. Up to " + MAX_PLAYERS + " players.");
+        p.sendMessage("SURV_SEAT:" + i + ":" + WORLD_W + ":" + WORLD_H + ":" + (int) px[i] + ":" + (int) py[i]);
+        if (tickCount > 1) broadcast(Frame.text("SERVER: " + p.username + " joined the fight!"));
+    }
+
+    private void fire(int i) {
+        float cos = (float) Math.cos(aim[i]), sin = (float) Math.sin(aim[i]);
+        bx[bullets] = px[i];
+        by[bullets] = py[i];
+        bvx[bullets] = cos * BULLET_SPEED;
+        bvy[bullets] = sin * BULLET_SPEED;
+        bowner[bullets] = i;
+        blife[bullets] = BULLET_TICKS;
+        bullets++;
+        ammo[i]--;
+        cooldown[i] = FIRE_COOLDOWN_TICKS;
+        flags[i] |= FLAG_FIRED;
+    }
+
+    private void removeBullet(int b) {
+        bullets--;
+        bx[b] = bx[bullets]; by[b] = by[bullets]; bvx[b] = bvx[bullets]; bvy[b] = bvy[bullets];
+        bowner[b] = bowner[bullets]; blife[b] = blife[bullets];
+    }
+
+    // --- HORDE ---
+
+    // One normalisation per zombie (no trig); at most MAX_PLAYERS distance checks
+    private void moveZombies(int seats) {
+        for (int z = 0; z < zombies; z++) {
+            float bestDx = 0, bestDy = 0, best = Float.MAX_VALUE;
+            for (int i = 0; i < seats; i++) {
+                if (!active[i] || hp[i] <= 0) continue;
+                float dx = px[i] - zx[z], dy = py[i] - zy[z], d = dx * dx + dy * dy;
+                if (d < best) { best = d; bestDx = dx; bestDy = dy; }
+            }
+            if (best < 1f) continue;
+            float scale = zspeed[z] / (float) Math.sqrt(best);
+            zx[z] += bestDx * scale;
+            zy[z] += bestDy * scale;
+        }
+    }
+
+    // Counting sort of the zombies by cell
+    private void buildGrid() {
+        Arrays.fill(cellStart, 0);
+        for (int z = 0; z < zombies; z++) {
+            int c = cellOf(zx[z], zy[z]);
+            zcell[z] = c;
+            cellStart[c + 1]++;
+        }
+        for (int c = 0; c < COLS * ROWS; c++) cellStart[c + 1] += cellStart[c];
+        for (int z = 0; z < zombies; z++) cellItems[cellStart[zcell[z]]++] = z; // Each start moves to its cell's end
+        System.arraycopy(cellStart, 0, cellStart, 1, COLS * ROWS);
+        cellStart[0] = 0;
+    }
+
+    private static int cellOf(float x, float y) {
+        int cx = Math.max(0, Math.min(COLS - 1, (int) x / CELL)), cy = Math.max(0, Math.min(ROWS - 1, (int) y / CELL));
+        return cy * COLS + cx;
+    }
+
+    // First live zombie within box of (x, y), -1 if none
+    private int nearZombie(float x, float y, int box) {
+        int cx = Math.min(COLS - 1, Math.max(0, (int) x / CELL)), cy = Math.min(ROWS - 1, Math.max(0, (int) y / CELL));
+        for (int r = Math.max(0, cy - 1); r <= Math.min(ROWS - 1, cy + 1); r++) {
+            for (int c = Math.max(0, cx - 1); c <= Math.min(COLS - 1, cx + 1); c++) {
+                int cell = r * COLS + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int z = cellItems[k];
+                    if (!zdead[z] && Math.abs(zx[z] - x) < box && Math.abs(zy[z] - y) < box) return z;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int countNear(float x, float y, int box) {
+        int n = 0;
+        int cx = Math.min(COLS - 1, Math.max(0, (int) x / CELL)), cy = Math.min(ROWS - 1, Math.max(0, (int) y / CELL));
+        for (int r = Math.max(0, cy - 1); r <= Math.min(ROWS - 1, cy + 1); r++) {
+            for (int c = Math.max(0, cx - 1); c <= Math.min(COLS - 1, cx + 1); c++) {
+                int cell = r * COLS + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int z = cellItems[k];
+                    if (!zdead[z] && Math.abs(zx[z] - x) < box && Math.abs(zy[z] - y) < box) n++;
+                }
+            }
+        }
+        return n;
+    }
+
+    private void removeDeadZombies() {
+        for (int z = zombies - 1; z >= 0; z--) {
+            if (!zdead[z]) continue;
+            zombies--;
+            zx[z] = zx[zombies]; zy[z] = zy[zombies]; zspeed[z] = zspeed[zombies]; zdead[z] = zdead[zombies];
+            zdead[zombies] = false;
+        }
+    }
+
+    // A wave is over when all of it has spawned and died; the next one is bigger
+    // and gets the downed players back up
+    private void spawnWave(int present) {
+        if (toSpawn == 0 && zombies == 0 && --pause <= 0) {
+            wave++;
+            for (int i = 0; i < joined; i++) {
+                if (active[i] && hp[i] == 0) hp[i] = PLAYER_HP / 2;
+            }
+            toSpawn = WAVE_ZOMBIES * wave * present;
+            pause = WAVE_PAUSE_TICKS;
+            broadcast(Frame.text("SERVER: Wave " + wave + ": " + toSpawn + " zombies incoming!"));
+        }
+        int n = Math.min(toSpawn, SPAWN_PER_TICK * wave);
+        toSpawn -= n;
+        spawnZombies(n);
+    }
+
+    // Along the edges of the world
+    void spawnZombies(int n) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int k = 0; k < n && zombies < MAX_ZOMBIES; k++) {
+            int side = rnd.nextInt(4);
+            zx[zombies] = side < 2 ? rnd.nextInt(WORLD_W) : (side == 2 ? 0 : WORLD_W - 1);
+            zy[zombies] = side >= 2 ? rnd.nextInt(WORLD_H) : (side == 0 ? 0 : WORLD_H - 1);
+            zspeed[zombies] = ZOMBIE_SPEED * (0.75f + rnd.nextFloat() * 0.5f); // Mixed speeds spread the horde out
+            zombies++;
+        }
+    }
+
+    // Benchmarks: a horde spread over the whole world at once
+    void scatterZombies(int n) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int k = 0; k < n && zombies < MAX_ZOMBIES; k++) {
+            zx[zombies] = rnd.nextInt(WORLD_W);
+            zy[zombies] = rnd.nextInt(WORLD_H);
+            zspeed[zombies] = ZOMBIE_SPEED * (0.75f + rnd.nextFloat() * 0.5f);
+            zombies++;
+        }
+    }
+
+    int zombieCount() { return zombies; }
+
+    private void finish(String msg) {
+        synchronized (this) { // Same lock as reserveSeat: nobody is seated in a match that just ended
+            isFinished = true;
+            open.remove(this);
+        }
+        if (msg != null) broadcast(Frame.text(msg));
+    }
+
+    @Override
+    public boolean isGameOver() { return isFinished; }
+
+    // --- SNAPSHOTS ---
+
+    // Protocol: SURV_STATE:tick:wave:horde:ammo:kills:ox,oy:seat,x,y,angle,hp,flags;...:bx,by;...:zx,zy;...
+    // Bullets and zombies are (x - ox) / QUANT, (y - oy) / QUANT within this player's view; angle is 0-255.
+    // Encoded during the send, straight from the live world (like GalacticWar's Snapshot).
+    private class View extends Frame {
+        private final int seat, ox, oy;
+
+        View(int seat) {
+            this.seat = seat;
+            ox = Math.max(0, Math.min(WORLD_W - VIEW_W, (int) px[seat] - VIEW_W / 2));
+            oy = Math.max(0, Math.min(WORLD_H - VIEW_H, (int) py[seat] - VIEW_H / 2));
+        }
+
+        @Override
+        public int stream() { return OutboundQueue.STREAM_SURVIVAL; }
+
+        @Override
+        protected String encodeText() {
+            int n = collectVisible(ox, oy);
+            StringBuilder sb = new StringBuilder(64 + joined * 24 + n * 8).append("SURV_STATE:").append(tickCount).append(':')
+                    .append(wave).append(':').append(zombies + toSpawn).append(':').append(ammo[seat]).append(':')
+                    .append(teamKills).append(':').append(ox).append(',').append(oy).append(':');
+            for (int i = 0; i < joined; i++) {
+                if (!active[i]) continue;
+                sb.append(i).append(',').append((int) px[i]).append(',').append((int) py[i]).append(',').append(angleByte(i))
+                        .append(',').append(hp[i]).append(',').append(flags(i)).append(';');
+            }
+            sb.append(':');
+            for (int b = 0, sent = 0; b < bullets && sent < MAX_VISIBLE_BULLETS; b++) {
+                if (!inView(bx[b], by[b])) continue;
+                sb.append((int) (bx[b] - ox) / QUANT).append(',').append((int) (by[b] - oy) / QUANT).append(';');
+                sent++;
+            }
+            sb.append(':');
+            for (int k = 0; k < n; k++) {
+                int z = visible[k];
+                sb.append((int) (zx[z] - ox) / QUANT).append(',').append((int) (zy[z] - oy) / QUANT).append(';');
+            }
+            return sb.toString();
+        }
+
+        // tick, wave, horde, ammo, kills, ox, oy | n, n (seat, x, y, angle, hp, flags) | m, m (x, y) | k, k (x, y)
+        @Override
+        protected byte[] encodeBinary() {
+            int n = collectVisible(ox, oy);
+            WireProtocol.Writer w = new WireProtocol.Writer(32 + joined * 8 + MAX_VISIBLE_BULLETS * 2 + n * 2);
+            w.varint(tickCount).varint(wave).varint(zombies + toSpawn).varint(ammo[seat]).varint(teamKills).varint(ox).varint(oy);
+            int shown = 0;
+            for (int i = 0; i < joined; i++) if (active[i]) shown++;
+            w.u8(shown);
+            for (int i = 0; i < joined; i++) {
+                if (active[i]) w.u8(i).varint((int) px[i]).varint((int) py[i]).u8(angleByte(i)).u8(hp[i]).u8(flags(i));
+            }
+            int m = 0;
+            for (int b = 0; b < bullets && m < MAX_VISIBLE_BULLETS; b++) if (inView(bx[b], by[b])) m++;
+            w.varint(m);
+            for (int b = 0, sent = 0; b < bullets && sent < m; b++) {
+                if (!inView(bx[b], by[b])) continue;
+                w.u8((int) (bx[b] - ox) / QUANT).u8((int) (by[b] - oy) / QUANT);
+                sent++;
+            }
+            w.varint(n);
+            for (int k = 0; k < n; k++) {
+                int z = visible[k];
+                w.u8((int) (zx[z] - ox) / QUANT).u8((int) (zy[z] - oy) / QUANT);
+            }
+            return w.toFrame(WireProtocol.OP_SURVIVAL);
+        }
+
+        private boolean inView(float x, float y) {
+            return x >= ox && y >= oy && x < ox + VIEW_W && y < oy + VIEW_H;
+        }
+
+        private int angleByte(int i) {
+            return (int) Math.floor(aim[i] / (2 * Math.PI) * 256) & 0xFF;
+        }
+
+        private int flags(int i) {
+            return flags[i] | (hp[i] == 0 ? FLAG_DOWN : 0);
+        }
+    }
+
+    // Live zombies in the view [ox, ox+VIEW_W) x [oy, oy+VIEW_H), ring by ring of cells around
+    // the view's centre so the nearest ones win when the cap is reached; fills visible[]
+    private final int[] visible = new int[MAX_VISIBLE_ZOMBIES];
+
+    private int collectVisible(int ox, int oy) {
+        int c0 = ox / CELL, c1 = Math.min(COLS - 1, (ox + VIEW_W - 1) / CELL);
+        int r0 = oy / CELL, r1 = Math.min(ROWS - 1, (oy + VIEW_H - 1) / CELL);
+        int pc = (c0 + c1) / 2, pr = (r0 + r1) / 2;
+        int maxRing = Math.max(Math.max(pc - c0, c1 - pc), Math.max(pr - r0, r1 - pr));
+        int n = 0;
+        for (int d = 0; d <= maxRing && n < MAX_VISIBLE_ZOMBIES; d++) {
+            for (int r = pr - d; r <= pr + d && n < MAX_VISIBLE_ZOMBIES; r++) {
+                if (r < r0 || r > r1) continue;
+                int step = (r == pr - d || r == pr + d || d == 0) ? 1 : 2 * d; // Edge rows whole, else both ends
+                for (int c = pc - d; c <= pc + d && n < MAX_VISIBLE_ZOMBIES; c += step) {
+                    if (c < c0 || c > c1) continue;
+                    int cell = r * COLS + c;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1] && n < MAX_VISIBLE_ZOMBIES; k++) {
+                        int z = cellItems[k];
+                        if (!zdead[z] && zx[z] >= ox && zy[z] >= oy && zx[z] < ox + VIEW_W && zy[z] < oy + VIEW_H) visible[n++] = z;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    private void broadcast(Frame frame) {
+        for (int i = 0; i < joined; i++) {
+            if (active[i]) players[i].send(frame);
+        }
+    }
+}
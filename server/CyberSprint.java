@@ -8,7 +8,7 @@ public class CyberSprint implements Game {
     private final int WIN_DISTANCE = 100;
     
     // Commands: 0=RUN, 1=JUMP, 2=SLIDE
-    private String currentObstacle = "RUN"; 
+    private Move.Action currentObstacle = Move.Action.RUN;
     private boolean isFinished = false;
 
     public CyberSprint(ClientHandler p1, ClientHandler p2) {
@@ -25,21 +25,21 @@ public class CyberSprint implements Game {
         
         // Randomly pick next move
         int r = new Random().nextInt(3);
-        if (r == 0) currentObstacle = "RUN";
-        else if (r == 1) currentObstacle = "JUMP";
-        else currentObstacle = "SLIDE";
+        if (r == 0) currentObstacle = Move.Action.RUN;
+        else if (r == 1) currentObstacle = Move.Action.JUMP;
+        else currentObstacle = Move.Action.SLIDE;
 
-        broadcast("OBSTACLE:" + currentObstacle);
+        broadcast("OBSTACLE:" + currentObstacle.label);
     }
 
     @Override
-    public synchronized void makeMove(String playerUsername, String moveCommand) {
+    public synchronized void makeMove(int seat, Move move) {
         if (isFinished) return;
 
         // Check if player hit the correct button
-        boolean correct = moveCommand.equalsIgnoreCase(currentObstacle);
+        boolean correct = move.is(currentObstacle);
         
-        ClientHandler player = (playerUsername.equals(p1.username)) ? p1 : p2;
+        ClientHandler player = (seat == P1) ? p1 : p2;
         
         if (correct) {
             // Success! Move forward
@@ -51,14 +51,15 @@ public class CyberSprint implements Game {
             if (distP1 >= WIN_DISTANCE || distP2 >= WIN_DISTANCE) {
                 isFinished = true;
                 broadcast("SPRINT_UPDATE:" + distP1 + ":" + distP2);
-                broadcast("GAME_OVER: " + playerUsername + " Won the Race!");
+                broadcast("GAME_OVER: " + player.username + " Won the Race!");
+                Leaderboard.reportResult("sprint", player.username, (player == p1 ? p2 : p1).username);
             } else {
                 // Continue Race
                 broadcast("SPRINT_UPDATE:" + distP1 + ":" + distP2);
                 
                 // Only generate new obstacle if this was a RUN command (mashable)
                 // or random chance to keep it dynamic
-                if (!currentObstacle.equals("RUN") || new Random().nextInt(5) == 0) {
+                if (currentObstacle != Move.Action.RUN || new Random().nextInt(5) == 0) {
                      nextObstacle();
                 }
             }
@@ -0,0 +1,128 @@
+package server;
+
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+
+/**
+ * Per-move command path, old against new: the startsWith / substring / split chain with
+ * each game re-parsing its string, versus the CommandRegistry lookup (and rate limiter
+ * check) and one in-place parse into the connection's reusable Move. Reports throughput
+ * and bytes allocated per command on this thread (HotSpot's ThreadMXBean).
+ *
+ * The new path runs twice: with the limiter's clock stamped once per 8 lines (a read that
+ * carried a burst of pipelined commands) and once per line (every command in its own read,
+ * the worst case).
+ *
+ * Usage: java server.DispatchBenchmark [commands per round]
+ */
+public class DispatchBenchmark {
+    // A mix of what the clients send during play: board cells, arrows, hands, ship positions
+    private static final String[] LINES = {
+        "/move 4", "/move UP", "/move rock", "/move POS:120:340",
+        "/move 7", "/move LEFT", "/move JUMP", "/move POS:88:512",
+    };
+    private static final int[] GAME = {0, 1, 2, 3, 0, 1, 2, 3}; // tictactoe, snake, rps/sprint, space
+
+    private static long sink = 0;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        ClientHandler handler = new ClientHandler((Socket) null);
+        handler.username = "bench";
+        double[] unlimited = {1e12, 1e12, 1e12}; // Still pays for the limiter check, never drops
+        handler.limits = new RateLimiter(unlimited, unlimited);
+        ClientHandler.Seat[] games = new ClientHandler.Seat[4];
+        for (int g = 0; g < games.length; g++) games[g] = new ClientHandler.Seat(new SinkGame(), Game.P1);
+
+        for (int round = 1; round <= 5; round++) { // The first round is mostly JIT warm-up
+            long oldBytes = allocated(), t = System.nanoTime();
+            for (int i = 0; i < n; i++) oldDispatch(LINES[i & 7], GAME[i & 7]);
+            long oldNs = System.nanoTime() - t;
+            oldBytes = allocated() - oldBytes;
+
+            long newBytes = allocated();
+            long batchedNs = runNew(handler, games, n, 7);
+            long perLineNs = runNew(handler, games, n, 0);
+            newBytes = allocated() - newBytes;
+
+            System.out.printf("round %d  old: %5.1f M cmd/s %5.1f B/cmd   new: %5.1f M cmd/s (8 lines/read) %5.1f M cmd/s (1 line/read) %4.1f B/cmd%n",
+                    round, n * 1e3 / oldNs, (double) oldBytes / n, n * 1e3 / batchedNs, n * 1e3 / perLineNs,
+                    (double) newBytes / (2L * n));
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    // New path; the limiter's clock is stamped when (i & batchMask) == 0
+    private static long runNew(ClientHandler handler, ClientHandler.Seat[] games, int n, int batchMask) {
+        long t = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            if ((i & batchMask) == 0) handler.limits.stamp();
+            handler.seat = games[GAME[i & 7]];
+            handler.handleCommand(LINES[i & 7]);
+        }
+        return System.nanoTime() - t;
+    }
+
+    // --- OLD PATH (as ClientHandler and the games did it) ---
+
+    private static void oldDispatch(String input, int game) {
+        if (input.startsWith("/play")) {
+            sink += input.split(" ").length;
+        }
+        else if (input.equalsIgnoreCase("/cancel")) {
+            sink++;
+        }
+        else if (input.startsWith("/move ")) {
+            String moveCommand = input.substring(6).trim();
+            oldMakeMove(game, moveCommand);
+        }
+    }
+
+    private static void oldMakeMove(int game, String cmd) {
+        switch (game) {
+            case 0: // TicTacToe / MemoryGame / GuessNumber
+                try { sink += Integer.parseInt(cmd); } catch (NumberFormatException e) { return; }
+                break;
+            case 1: // SnakeBattle / ShadowRogue
+                if (cmd.equals("UP")) sink += 0;
+                else if (cmd.equals("RIGHT")) sink += 1;
+                else if (cmd.equals("DOWN")) sink += 2;
+                else if (cmd.equals("LEFT")) sink += 3;
+                break;
+            case 2: // RockPaperScissors, then CyberSprint
+                String move = cmd.toLowerCase();
+                if (move.equals("rock") || move.equals("paper") || move.equals("scissors")) sink += move.length();
+                else if (cmd.equalsIgnoreCase("JUMP")) sink++;
+                break;
+            default: // GalacticWar
+                if (cmd.startsWith("POS:")) {
+                    String[] xy = cmd.split(":");
+                    sink += Integer.parseInt(xy[1]) + Integer.parseInt(xy[2]);
+                }
+        }
+    }
+
+    // --- NEW PATH: a game that just reads the typed move ---
+
+    private static class SinkGame implements Game {
+        @Override
+        public void makeMove(int seat, Move move) {
+            switch (move.type) {
+                case NUMBER: sink += move.number; break;
+                case DIRECTION: sink += move.direction.ordinal(); break;
+                case ACTION: sink += move.action.label.length(); break;
+                case POS: sink += move.x + move.y; break;
+                default: break;
+            }
+        }
+
+        @Override
+        public boolean isGameOver() { return false; }
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
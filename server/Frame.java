@@ -0,0 +1,60 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A server message that has both a text form and a binary form. Each form is
+ * encoded at most once, on first use, no matter how many players receive it.
+ * Encoding happens inside the send call, so a game may read its live state from
+ * a frame as long as it doesn't change that state while broadcasting.
+ */
+public abstract class Frame {
+    private String text;
+    private byte[] textLine;
+    private byte[] binary;
+
+    // A plain text message (chat, announcements) that many players receive
+    public static Frame text(String msg) {
+        return new Frame() {
+            @Override
+            protected String encodeText() { return msg; }
+
+            @Override
+            protected byte[] encodeBinary() { return WireProtocol.textFrame(msg); }
+        };
+    }
+
+    protected abstract String encodeText();
+
+    protected abstract byte[] encodeBinary();
+
+    // Real-time stream this frame belongs to (see OutboundQueue), 0 if it must always be delivered
+    public int stream() { return 0; }
+
+    // Deltas may be dropped under backpressure; the next full frame on the stream replaces them
+    public boolean isDelta() { return false; }
+
+    public final String text() {
+        if (text == null) text = encodeText();
+        return text;
+    }
+
+    // The text form as it goes on the wire (one line), shared by every text-protocol player
+    public final byte[] textLine() {
+        if (textLine == null) textLine = (text() + "\n").getBytes(StandardCharsets.UTF_8);
+        return textLine;
+    }
+
+    public final byte[] binary() {
+        if (binary == null) binary = encodeBinary();
+        return binary;
+    }
+
+    // For a frame object a game reuses every tick: the next send encodes the current state.
+    // Whatever was handed out before stays with whoever holds it (e.g. a queue) untouched.
+    protected final void invalidate() {
+        text = null;
+        textLine = null;
+        binary = null;
+    }
+}
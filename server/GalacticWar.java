@@ -1,55 +1,204 @@
 package server;
 
-public class GalacticWar implements Game {
-    private ClientHandler p1, p2;
-    private int hp1 = 100, hp2 = 100;
-    private boolean isFinished = false;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Galactic War, simulated on the server.
+ *
+ * Clients only send their key state ("/move K:<bits>", see KEY_*) when it changes;
+ * the server moves the ships, fires and moves the bullets and detects hits on a fixed
+ * TICK_MS step, and broadcasts a snapshot of the whole world every SNAPSHOT_EVERY ticks.
+ * Network load depends on the tick and snapshot rates, not on the clients' frame rates,
+ * and a client can no longer place its ship anywhere or decide whether it was hit.
+ *
+ * Works for any number of ships: even seats start on the left facing right, odd seats
+ * on the right facing left. Bullets hit every ship but their owner's; the last ship
+ * flying wins. Units are the client's panel pixels.
+ */
+public class GalacticWar implements TickableGame {
+    static final long TICK_MS = 33; // ~30 simulation steps a second
+
+    // Snapshots per second, -Dspace.snapshotHz=15 halves the bandwidth (clients smooth in between)
+    static final int SNAPSHOT_HZ = Integer.getInteger("space.snapshotHz", 30);
+    static final int SNAPSHOT_EVERY = Math.max(1, Math.round(1000f / TICK_MS / SNAPSHOT_HZ));
+
+    // Key-state bits of "/move K:<bits>"
+    public static final int KEY_UP = 1, KEY_DOWN = 2, KEY_LEFT = 4, KEY_RIGHT = 8, KEY_FIRE = 16;
+    private static final int KEY_MASK = 31;
+
+    // World: MAX_X x MAX_Y is the field, ships (SHIP square, top-left at x, y) stay wholly inside it
+    static final int MAX_X = 850, MAX_Y = 600, SHIP = 40, BULLET_W = 10, BULLET_H = 4;
+    static final int SHIP_SPEED = 10, BULLET_SPEED = 20, FIRE_COOLDOWN_TICKS = 8, DAMAGE = 5, MAX_HP = 100;
+
+    // Snapshot ship flags. Shots and hits are not flags but running counters (mod 256): a snapshot
+    // can be superseded in the queue or lost on UDP, and the next one still tells the client what it missed.
+    static final int FLAG_DOWN = 4;
+
+    private final ClientHandler[] players;
+    private final AtomicIntegerArray keys; // Written by the players' readers, read by the tick
+    private volatile boolean isFinished = false;
+    private int tickCount = 0;
+
+    // --- SHIPS (one slot per seat) ---
+    private final int[] x, y, hp, facing, cooldown, shots, hits;
+
+    // --- BULLETS (struct of arrays, swap-remove) ---
+    private final int[] bx, by, bdir, bowner;
+    private int bullets = 0;
 
     public GalacticWar(ClientHandler p1, ClientHandler p2) {
-        this.p1 = p1;
-        this.p2 = p2;
+        this(new ClientHandler[] {p1, p2});
+    }
+
+    public GalacticWar(ClientHandler[] players) {
+        this.players = players;
+        int n = players.length;
+        keys = new AtomicIntegerArray(n);
+        x = new int[n]; y = new int[n]; hp = new int[n]; facing = new int[n]; cooldown = new int[n]; shots = new int[n]; hits = new int[n];
+        int perShip = MAX_X / BULLET_SPEED / FIRE_COOLDOWN_TICKS + 2; // Most bullets one ship can have in flight
+        bx = new int[n * perShip]; by = new int[n * perShip]; bdir = new int[n * perShip]; bowner = new int[n * perShip];
+
+        // Assign sides: even seats Left (facing right), odd seats Right, spread out vertically
+        int perSide = (n + 1) / 2;
+        for (int i = 0; i < n; i++) {
+            boolean left = i % 2 == 0;
+            x[i] = left ? 50 : 800;
+            y[i] = (MAX_Y + SHIP) * (i / 2 + 1) / (perSide + 1) - SHIP / 2;
+            facing[i] = left ? 1 : -1;
+            hp[i] = MAX_HP;
+        }
+
         broadcast("GAME_START: Galactic War! Use W,A,S,D to Fly and SPACE to Shoot.");
-        
-        // Assign sides: P1 is Left (Red), P2 is Right (Blue)
-        p1.sendMessage("SETUP:LEFT");
-        p2.sendMessage("SETUP:RIGHT");
+        for (int i = 0; i < n; i++) players[i].sendMessage("SPACE_SEAT:" + i);
+        broadcast(new Snapshot());
+        TickEngine.register(this);
     }
 
     @Override
-    public synchronized void makeMove(String player, String cmd) {
+    public long tickMillis() { return TICK_MS; }
+
+    // Only key states are accepted; positions and hits are the server's business now
+    @Override
+    public void makeMove(int seat, Move move) {
+        if (move.type == Move.Type.KEYS) keys.set(seat, move.number & KEY_MASK);
+    }
+
+    @Override
+    public void tick() {
         if (isFinished) return;
-        
-        ClientHandler sender = (player.equals(p1.username)) ? p1 : p2;
-        ClientHandler opponent = (sender == p1) ? p2 : p1;
-
-        // HIGH SPEED RELAY PROTOCOL
-        if (cmd.startsWith("POS:")) {
-            // cmd format: POS:x:y
-            opponent.sendMessage("ENEMY_POS:" + cmd.substring(4));
-        }
-        else if (cmd.equals("SHOOT")) {
-            opponent.sendMessage("ENEMY_SHOOT");
-        }
-        else if (cmd.equals("HIT")) {
-            // Player admits they got hit
-            if (sender == p1) hp1 -= 5; else hp2 -= 5;
-            
-            broadcast("HP:" + hp1 + ":" + hp2);
-            opponent.sendMessage("ENEMY_HIT_CONFIRM"); // Tell shooter they hit
-            
-            if (hp1 <= 0 || hp2 <= 0) {
-                isFinished = true;
-                String winner = (hp1 > 0) ? p1.username : p2.username;
-                broadcast("GAME_OVER: " + winner + " Dominates the Galaxy!");
+        tickCount++;
+
+        // 1. Ships: disconnected players go down, the rest fly and fire
+        for (int i = 0; i < players.length; i++) {
+            if (hp[i] <= 0) continue;
+            if (!players[i].isConnected()) {
+                hp[i] = 0;
+                continue;
+            }
+            int k = keys.get(i);
+            if ((k & KEY_UP) != 0) y[i] = Math.max(0, y[i] - SHIP_SPEED);
+            if ((k & KEY_DOWN) != 0) y[i] = Math.min(MAX_Y - SHIP, y[i] + SHIP_SPEED);
+            if ((k & KEY_LEFT) != 0) x[i] = Math.max(0, x[i] - SHIP_SPEED);
+            if ((k & KEY_RIGHT) != 0) x[i] = Math.min(MAX_X - SHIP, x[i] + SHIP_SPEED);
+
+            if (cooldown[i] > 0) cooldown[i]--;
+            if ((k & KEY_FIRE) != 0 && cooldown[i] == 0 && bullets < bx.length) {
+                bx[bullets] = facing[i] > 0 ? x[i] + SHIP : x[i] - BULLET_W;
+                by[bullets] = y[i] + (SHIP - BULLET_H) / 2;
+                bdir[bullets] = facing[i];
+                bowner[bullets] = i;
+                bullets++;
+                cooldown[i] = FIRE_COOLDOWN_TICKS;
+                shots[i]++;
             }
         }
+
+        // 2. Bullets: move, leave the screen or hit a ship (a bullet moves less than a ship is wide)
+        for (int b = bullets - 1; b >= 0; b--) {
+            bx[b] += bdir[b] * BULLET_SPEED;
+            boolean gone = bx[b] < -BULLET_W || bx[b] > MAX_X;
+            for (int i = 0; i < players.length && !gone; i++) {
+                if (i == bowner[b] || hp[i] <= 0) continue;
+                if (bx[b] < x[i] + SHIP && bx[b] + BULLET_W > x[i] && by[b] < y[i] + SHIP && by[b] + BULLET_H > y[i]) {
+                    hp[i] = Math.max(0, hp[i] - DAMAGE);
+                    hits[i]++;
+                    gone = true;
+                }
+            }
+            if (gone) removeBullet(b);
+        }
+
+        // 3. Last ship flying wins
+        int alive = 0, last = -1;
+        for (int i = 0; i < players.length; i++) {
+            if (hp[i] > 0) { alive++; last = i; }
+        }
+        if (alive <= 1) {
+            isFinished = true;
+            broadcast(new Snapshot());
+            if (last >= 0) {
+                broadcast("GAME_OVER: " + players[last].username + " Dominates the Galaxy!");
+                String[] beaten = new String[players.length - 1];
+                for (int i = 0, n = 0; i < players.length; i++) if (i != last) beaten[n++] = players[i].username;
+                Leaderboard.reportResult("space", players[last].username, beaten);
+            } else {
+                broadcast("GAME_OVER: No ship survived!");
+            }
+            return;
+        }
+
+        // 4. Snapshot at the configured rate
+        if (tickCount % SNAPSHOT_EVERY == 0) broadcast(new Snapshot());
+    }
+
+    private void removeBullet(int b) {
+        bullets--;
+        bx[b] = bx[bullets]; by[b] = by[bullets]; bdir[b] = bdir[bullets]; bowner[b] = bowner[bullets];
     }
 
     @Override
     public boolean isGameOver() { return isFinished; }
 
+    // Protocol: SPACE:tick:x,y,hp,flags,shots,hits;...(per seat):x,y,owner;...(per bullet)
+    // Encoded from the live world during the broadcast.
+    private class Snapshot extends Frame {
+        private int flags(int i) {
+            return hp[i] == 0 ? FLAG_DOWN : 0;
+        }
+
+        @Override
+        public int stream() { return OutboundQueue.STREAM_SPACE; } // A newer snapshot replaces an unsent one
+
+        @Override
+        protected String encodeText() {
+            StringBuilder sb = new StringBuilder(32 + players.length * 28 + bullets * 14).append("SPACE:").append(tickCount).append(':');
+            for (int i = 0; i < players.length; i++) {
+                sb.append(x[i]).append(',').append(y[i]).append(',').append(hp[i]).append(',').append(flags(i))
+                        .append(',').append(shots[i] & 0xFF).append(',').append(hits[i] & 0xFF).append(';');
+            }
+            sb.append(':');
+            for (int b = 0; b < bullets; b++) sb.append(bx[b]).append(',').append(by[b]).append(',').append(bowner[b]).append(';');
+            return sb.toString();
+        }
+
+        @Override
+        protected byte[] encodeBinary() {
+            WireProtocol.Writer w = new WireProtocol.Writer(8 + players.length * 10 + bullets * 6);
+            w.varint(tickCount).u8(players.length);
+            for (int i = 0; i < players.length; i++) {
+                w.zigzag(x[i]).zigzag(y[i]).varint(hp[i]).u8(flags(i)).u8(shots[i]).u8(hits[i]);
+            }
+            w.varint(bullets);
+            for (int b = 0; b < bullets; b++) w.zigzag(bx[b]).zigzag(by[b]).u8(bowner[b]);
+            return w.toFrame(WireProtocol.OP_SPACE);
+        }
+    }
+
+    private void broadcast(Frame frame) {
+        for (ClientHandler p : players) p.send(frame);
+    }
+
     private void broadcast(String msg) {
-        p1.sendMessage(msg);
-        p2.sendMessage(msg);
+        for (ClientHandler p : players) p.sendMessage(msg);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,11 @@
 package server;
 
 public interface Game {
-    void makeMove(String player, String move);
+    // Seats: P1 is the game's first constructor argument, P2 the second
+    int P1 = 0, P2 = 1;
+
+    // seat says who moved (see ClientHandler.joinGame); move is only valid during the call
+    // (the connection reuses it), copy what you keep
+    void makeMove(int seat, Move move);
     boolean isGameOver();
-}
\ No newline at end of file
+}
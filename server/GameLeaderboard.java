@@ -0,0 +1,105 @@
+package server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wins for one game type, all-time and over rolling hour / day / week windows.
+ *
+ * Results land in hourly buckets (a week's worth, reused as a ring). Each window
+ * keeps running totals that are updated as wins arrive and lose a whole bucket's
+ * counts when that hour falls out of the window, so nothing is ever rescanned.
+ * Every window has its own RankIndex, so a query is just its cached top list.
+ * Windows are hour-aligned: "hour" is the current clock hour, "day" the last 24.
+ *
+ * All-time totals live in the ScoreStore; the Leaderboard passes them in (raiseAllTime).
+ */
+public class GameLeaderboard {
+    public static final String HOUR = "hour", DAY = "day", WEEK = "week", ALL = "all";
+    private static final String[] WINDOWS = {HOUR, DAY, WEEK};
+    private static final int[] WINDOW_HOURS = {1, 24, 168};
+    private static final int[] WINDOW_MAX_WINS = {1 << 12, 1 << 14, 1 << 16}; // Rank tree sizes
+    private static final int BUCKETS = 168;
+    private static final long HOUR_MS = 3_600_000L;
+
+    private final String game;
+    private final Map<String, Integer>[] buckets = maps(BUCKETS); // Wins per hour, slot = hour % BUCKETS
+    private final Map<String, Integer>[] totals = maps(WINDOWS.length);
+    private final RankIndex[] ranks = new RankIndex[WINDOWS.length];
+    private final RankIndex allTime = new RankIndex(1 << 18);
+    private long currentHour;
+
+    public GameLeaderboard(String game) {
+        this.game = game;
+        for (int w = 0; w < WINDOWS.length; w++) ranks[w] = new RankIndex(WINDOW_MAX_WINS[w]);
+        currentHour = System.currentTimeMillis() / HOUR_MS;
+    }
+
+    // Java has no generic array creation; every slot gets its own empty map
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Map<String, Integer>[] maps(int n) {
+        Map<String, Integer>[] maps = new HashMap[n];
+        for (int i = 0; i < n; i++) maps[i] = new HashMap<>();
+        return maps;
+    }
+
+    public String game() { return game; }
+
+    public synchronized void addWin(String username) {
+        roll(System.currentTimeMillis() / HOUR_MS);
+        buckets[(int) (currentHour % BUCKETS)].merge(username, 1, Integer::sum);
+        for (int w = 0; w < WINDOWS.length; w++) change(w, username, 1);
+    }
+
+    // All-time total for this game (from a win, or from the store while warming up)
+    public void raiseAllTime(String username, int wins) {
+        allTime.raise(username, wins);
+    }
+
+    // Evict hours that fell out of their windows; the Leaderboard calls this every minute too
+    public synchronized void roll(long hour) {
+        if (hour - currentHour > BUCKETS) {
+            // Idle for more than a week: every window is empty
+            for (int i = 0; i < BUCKETS; i++) buckets[i].clear();
+            for (int w = 0; w < WINDOWS.length; w++) {
+                for (String name : totals[w].keySet()) ranks[w].set(name, 0);
+                totals[w].clear();
+            }
+            currentHour = hour;
+            return;
+        }
+        while (currentHour < hour) {
+            currentHour++;
+            for (int w = 0; w < WINDOWS.length; w++) {
+                Map<String, Integer> leaving = buckets[(int) ((currentHour - WINDOW_HOURS[w]) % BUCKETS)];
+                for (Map.Entry<String, Integer> e : leaving.entrySet()) change(w, e.getKey(), -e.getValue());
+            }
+            buckets[(int) (currentHour % BUCKETS)].clear(); // Same slot as the hour that just left the week
+        }
+    }
+
+    private void change(int w, String username, int delta) {
+        int now = totals[w].getOrDefault(username, 0) + delta;
+        if (now > 0) totals[w].put(username, now);
+        else totals[w].remove(username);
+        ranks[w].set(username, Math.max(0, now));
+    }
+
+    // Lock-free: the window's cached top list, or null if the window is unknown
+    public String top(String window) {
+        if (ALL.equalsIgnoreCase(window)) return allTime.topText();
+        int w = windowIndex(window);
+        return w < 0 ? null : ranks[w].topText();
+    }
+
+    static boolean isWindow(String window) {
+        return ALL.equalsIgnoreCase(window) || windowIndex(window) >= 0;
+    }
+
+    private static int windowIndex(String window) {
+        for (int w = 0; w < WINDOWS.length; w++) {
+            if (WINDOWS[w].equalsIgnoreCase(window)) return w;
+        }
+        return -1;
+    }
+}
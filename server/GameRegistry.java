@@ -0,0 +1,77 @@
+package server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Game types by name: how to start a PvP match and, for some, a solo run or a way
+ * to drop into a match that is already running (co-op games with free seats).
+ * Adding a game means one line here instead of another branch in the matchmaker.
+ */
+public class GameRegistry {
+    public static final String DEFAULT = "tictactoe";
+
+    public interface Factory {
+        Game create(ClientHandler p1, ClientHandler p2);
+    }
+
+    public interface SoloFactory {
+        Game create(ClientHandler player);
+    }
+
+    // Seats the player in a running match and returns true, or false if none has room
+    public interface DropIn {
+        boolean join(ClientHandler player);
+    }
+
+    private static final Map<String, Factory> pvp = new HashMap<>();
+    private static final Map<String, SoloFactory> solo = new HashMap<>();
+    private static final Map<String, DropIn> dropIn = new HashMap<>();
+    private static final Map<String, Class<? extends Game>> dropInGame = new HashMap<>();
+
+    static {
+        pvp.put("tictactoe", TicTacToe::new);
+        pvp.put("rps", RockPaperScissors::new);
+        pvp.put("guess", GuessNumber::new);
+        pvp.put("memory", MemoryGame::new);
+        pvp.put("sprint", CyberSprint::new);
+        pvp.put("space", GalacticWar::new);
+        pvp.put("snake", SnakeBattle::new);
+        pvp.put("rogue", ShadowRogue::new);
+        pvp.put("survival", CrimsonSurvival::new);
+
+        solo.put("snake", p -> new SnakeBattle(p, null));   // Null opponent = Bot
+        solo.put("rogue", p -> new ShadowRogue(p, null));   // Null opponent = Solo Dungeon
+        solo.put("survival", CrimsonSurvival::new);
+
+        dropIn.put("survival", CrimsonSurvival::joinOpen);   // Up to CrimsonSurvival.MAX_PLAYERS
+        dropInGame.put("survival", CrimsonSurvival.class);
+    }
+
+    // Known game type for a /play argument; unknown names get the default game, as before
+    public static String resolve(String gameType) {
+        return pvp.containsKey(gameType) ? gameType : DEFAULT;
+    }
+
+    public static Game create(String gameType, ClientHandler p1, ClientHandler p2) {
+        return pvp.getOrDefault(gameType, pvp.get(DEFAULT)).create(p1, p2);
+    }
+
+    // True if the player was seated in a running match of this type
+    public static boolean joinRunning(String gameType, ClientHandler player) {
+        DropIn join = dropIn.get(gameType);
+        return join != null && join.join(player);
+    }
+
+    // True if game is a running match of this type, one that players drop into
+    public static boolean isRunning(String gameType, Game game) {
+        Class<? extends Game> type = dropInGame.get(gameType);
+        return type != null && type.isInstance(game) && !game.isGameOver();
+    }
+
+    // Null if the game has no solo mode
+    public static Game createSolo(String gameType, ClientHandler player) {
+        SoloFactory factory = solo.get(gameType);
+        return factory == null ? null : factory.create(player);
+    }
+}
@@ -26,28 +26,28 @@ public class GuessNumber implements Game {
     }
 
     @Override
-    public synchronized void makeMove(String playerUsername, String moveCommand) {
+    public synchronized void makeMove(int seat, Move move) {
         if (isFinished) return;
 
         // 1. Check Turn
-        if (!playerUsername.equals(currentTurn.username)) {
+        if (currentTurn != (seat == P1 ? p1 : p2)) {
             return; // Ignore moves out of turn
         }
 
         // 2. Parse Guess
-        int guess;
-        try {
-            guess = Integer.parseInt(moveCommand.trim());
-        } catch (NumberFormatException e) {
+        if (move.type != Move.Type.NUMBER) {
             currentTurn.sendMessage("INVALID: Please enter a number. Example: /move 42");
             return;
         }
+        int guess = move.number;
 
         // 3. Game Logic
+        String playerUsername = currentTurn.username;
         broadcast(playerUsername + " guessed: " + guess);
 
         if (guess == targetNumber) {
             broadcast("GAME_OVER: Correct! " + playerUsername + " WINS!");
+            Leaderboard.reportResult("guess", playerUsername, (currentTurn == p1 ? p2 : p1).username);
             isFinished = true;
         } else if (guess < targetNumber) {
             broadcast("HINT: Too Low!");
@@ -0,0 +1,36 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket counter for /stats, e.g. match wait times. Bucket i counts values
+ * below bounds[i]; the last bucket counts everything else. Lock-free to record.
+ */
+public class Histogram {
+    private final String unit;
+    private final long[] bounds;
+    private final AtomicLongArray counts;
+
+    public Histogram(String unit, long... bounds) {
+        this.unit = unit;
+        this.bounds = bounds;
+        this.counts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    public void record(long value) {
+        int i = 0;
+        while (i < bounds.length && value >= bounds[i]) i++;
+        counts.incrementAndGet(i);
+    }
+
+    // e.g. "<1s=4 <5s=2 >=5s=0"
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < bounds.length; i++) {
+            sb.append('<').append(bounds[i]).append(unit).append('=').append(counts.get(i)).append(' ');
+        }
+        sb.append(">=").append(bounds[bounds.length - 1]).append(unit).append('=').append(counts.get(bounds.length));
+        return sb.toString();
+    }
+}
@@ -1,53 +1,113 @@
 package server;
 
-import java.io.*;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class Leaderboard {
-    private static final String FILE_NAME = "scores.txt";
-    private static Map<String, Integer> scores = new HashMap<>();
+    private static final String FILE_NAME = "scores.dat";   // Memory-mapped store (see ScoreStore)
+    private static final String LEGACY_FILE = "scores.txt"; // Imported once when there is no store yet
 
-    // Load scores when server starts
+    // Totals of everyone who won since startup, keyed like the store ("name", "@game:name").
+    // Everybody else stays on disk until asked for.
+    private static final Map<String, Integer> scores = new ConcurrentHashMap<>();
+    private static final RankIndex ranking = new RankIndex(1 << 20); // Sorted view for top-K and /rank
+    private static final Map<String, GameLeaderboard> boards = new ConcurrentHashMap<>(); // Per game type
+    private static ScoreLog wal; // Persists wins in the background (see ScoreLog)
+    private static ScoreStore store;
+    private static volatile boolean indexReady = false;
+
+    // Map the store and start serving right away; the rank index fills in the background
     public static void load() {
-        try (BufferedReader br = new BufferedReader(new FileReader(FILE_NAME))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(":");
-                if (parts.length == 2) {
-                    scores.put(parts[0], Integer.parseInt(parts[1]));
-                }
-            }
-            System.out.println(">> [SYSTEM] Leaderboard loaded.");
-        } catch (IOException e) {
-            System.out.println(">> [SYSTEM] No previous scores found. Starting fresh.");
+        long start = System.nanoTime();
+        try {
+            wal = ScoreLog.open(FILE_NAME, LEGACY_FILE);
+            store = wal.store();
+            System.out.println(">> [SYSTEM] Leaderboard opened (" + store.size() + " records) in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+            Workers.start("leaderboard-warmup", Leaderboard::warmUp);
+        } catch (IOException | RuntimeException e) {
+            System.out.println(">> [ERROR] Could not open the leaderboard, scores will not be saved: " + e.getMessage());
+            indexReady = true;
         }
+
+        // Expire old hours even when nobody is winning
+        Workers.repeat(() -> {
+            long hour = System.currentTimeMillis() / 3_600_000L;
+            for (GameLeaderboard board : boards.values()) board.roll(hour);
+        }, 60_000);
     }
 
-    // Save scores after every win
-    public static void save() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(FILE_NAME))) {
-            for (Map.Entry<String, Integer> entry : scores.entrySet()) {
-                pw.println(entry.getKey() + ":" + entry.getValue());
+    // Feed every stored total into the rank indexes. raise() keeps the higher total,
+    // so wins that happen meanwhile can't be overwritten by older stored values.
+    // Only startup is O(1): once this finishes, the indexes hold every player on the heap
+    // (~160 B each, see ScoreStoreBenchmark), so heap still grows linearly with players.
+    static void warmUp() {
+        long start = System.nanoTime();
+        store.forEach((key, wins) -> {
+            if (key.startsWith("@")) {
+                int split = key.indexOf(':');
+                board(key.substring(1, split)).raiseAllTime(key.substring(split + 1), wins);
+            } else {
+                ranking.raise(key, wins);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        });
+        indexReady = true;
+        System.out.println(">> [SYSTEM] Leaderboard index ready: " + ranking.size() + " players in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+    }
+
+    // O(1) and never blocks on disk: the score log writes it out in the background.
+    // game is the /play name ("snake", "tictactoe"...); the global board counts every game.
+    public static void addWin(String game, String username) {
+        int total = scores.compute(username, (key, cur) -> (cur == null ? stored(key) : cur) + 1);
+        int gameTotal = scores.compute("@" + game + ":" + username, (key, cur) -> (cur == null ? stored(key) : cur) + 1);
+        ranking.raise(username, total);
+
+        GameLeaderboard board = board(game);
+        board.addWin(username);
+        board.raiseAllTime(username, gameTotal);
+        if (wal != null) wal.appendWin(game, username, total, gameTotal);
+    }
+
+    // A finished match: the winner's win, and the Elo moves against everyone they beat.
+    // Every PvP result goes through here so leaderboard and ratings can't drift apart.
+    public static void reportResult(String game, String winner, String... losers) {
+        addWin(game, winner);
+        for (String loser : losers) Ratings.recordResult(game, winner, loser);
     }
 
-    public static synchronized void addWin(String username) {
-        scores.put(username, scores.getOrDefault(username, 0) + 1);
-        save(); // Auto-save
+    private static int stored(String key) {
+        return store == null ? 0 : store.get(key);
     }
 
+    // e.g. "#3 of 120 (7 Wins)"
+    public static String getRank(String username) {
+        Integer known = scores.get(username);
+        int wins = (known != null) ? known : stored(username);
+        if (wins == 0) return "unranked (no wins yet)";
+        return "#" + ranking.rank(wins) + " of " + ranking.size() + " (" + wins + " Wins)"
+                + (indexReady ? "" : " - still loading, so far");
+    }
+
+    public static String stats() {
+        return (wal == null ? "not persisted" : wal.stats()) + " index=" + (indexReady ? "ready" : "loading");
+    }
+
+    // Cached snapshot, rebuilt only when a win changes the top
     public static String getTopScores() {
-        if (scores.isEmpty()) return "NO SCORES YET";
-        
-        // Sort by Score (Descending) using Streams
-        return scores.entrySet().stream()
-                .sorted((k1, k2) -> -k1.getValue().compareTo(k2.getValue()))
-                .limit(5) // Top 5
-                .map(e -> e.getKey() + " (" + e.getValue() + " Wins)")
-                .collect(Collectors.joining(", "));
-    }
-}
\ No newline at end of file
+        return ranking.topText() + (indexReady ? "" : " (still loading)");
+    }
+
+    // Top of one game over a window (hour/day/week/all), or null if the window is unknown
+    public static String getTopScores(String game, String window) {
+        if (!GameLeaderboard.isWindow(window)) return null;
+        GameLeaderboard board = boards.get(game);
+        return board == null ? "NO SCORES YET" : board.top(window);
+    }
+
+    private static GameLeaderboard board(String game) {
+        return boards.computeIfAbsent(game, GameLeaderboard::new);
+    }
+}
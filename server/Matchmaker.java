@@ -0,0 +1,253 @@
+package server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PvP matchmaking on per-game Elo ratings (see Ratings).
+ *
+ * Each game type has a row of rating buckets, each a lock-free FIFO of tickets. A new
+ * player looks at the head of their own bucket, then the neighbouring ones, out to the
+ * rating gap they accept right now; only bucket heads are touched, so an attempt costs
+ * a few dozen polls no matter how many players are queued. The accepted gap starts at
+ * BASE_WINDOW and widens with waiting time, and a sweep every SWEEP_MS re-tries
+ * everyone who is still waiting (which also pairs two players that arrived together).
+ *
+ * A ticket is claimed with a single CAS (WAITING -> CLAIMING or CANCELLED), so two
+ * threads can never grab the same opponent, and cancel, timeout and disconnect race
+ * safely with a match. Cancelled tickets stay queued and are dropped at the head.
+ */
+public class Matchmaker {
+    static final long QUEUE_TIMEOUT_MS = 120_000;
+    static final long SWEEP_MS = 1000;
+
+    // Rating buckets; ratings outside 0..2999 go to the end buckets
+    static final int BUCKET_WIDTH = 50, BUCKETS = 60;
+
+    // Accepted rating gap: narrow at first, wider the longer someone waits
+    static final int BASE_WINDOW = 100, WIDEN_PER_SECOND = 25, MAX_WINDOW = BUCKET_WIDTH * BUCKETS;
+
+    private static final Map<String, MatchQueue> queues = new ConcurrentHashMap<>();
+
+    // Stats
+    private static final AtomicLong matches = new AtomicLong();
+    private static final AtomicLong timeouts = new AtomicLong();
+    private static final Histogram waitTimes = new Histogram("ms", 100, 1000, 5000, 15000, 30000, 60000);
+    private static final Histogram ratingSpread = new Histogram("", 50, 100, 200, 400, 800);
+
+    // CLAIMING is the short window between taking a ticket and finding it a partner
+    private static final int WAITING = 0, CLAIMING = 1, MATCHED = 2, CANCELLED = 3;
+
+    static {
+        Workers.repeat(Matchmaker::sweep, SWEEP_MS);
+    }
+
+    static class Ticket {
+        final ClientHandler player;
+        final String gameType;
+        final int rating, bucket;
+        final long since = System.nanoTime();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Ticket(ClientHandler player, String gameType) {
+            this.player = player;
+            this.gameType = gameType;
+            this.rating = Ratings.get(gameType, player.username);
+            this.bucket = Math.max(0, Math.min(BUCKETS - 1, rating / BUCKET_WIDTH));
+        }
+
+        long waitedMillis(long now) {
+            return TimeUnit.NANOSECONDS.toMillis(now - since);
+        }
+
+        int window(long now) {
+            return (int) Math.min(MAX_WINDOW, BASE_WINDOW + WIDEN_PER_SECOND * waitedMillis(now) / 1000);
+        }
+    }
+
+    private static class MatchQueue {
+        final ConcurrentLinkedDeque<Ticket>[] buckets;
+        final AtomicInteger waiting = new AtomicInteger(); // Live WAITING tickets, buckets may lag behind
+
+        @SuppressWarnings({"rawtypes", "unchecked"}) // Generic array: one deque per bucket, indexed in the hot path
+        MatchQueue() {
+            buckets = new ConcurrentLinkedDeque[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) buckets[i] = new ConcurrentLinkedDeque<>();
+        }
+
+        // Oldest live ticket of a bucket, already claimed for us; null if nobody is waiting there
+        Ticket claimNext(int bucket) {
+            Ticket t;
+            while ((t = buckets[bucket].pollFirst()) != null) {
+                if (t.state.compareAndSet(WAITING, CLAIMING)) {
+                    waiting.decrementAndGet();
+                    return t;
+                }
+                // Cancelled or timed out: drop it now that it reached the head
+            }
+            return null;
+        }
+
+        // Put a claimed ticket back at the front, it keeps its place in line
+        void release(Ticket t) {
+            t.state.set(WAITING);
+            buckets[t.bucket].offerFirst(t);
+            waiting.incrementAndGet();
+        }
+
+        void enqueue(Ticket t) {
+            buckets[t.bucket].offerLast(t);
+            waiting.incrementAndGet();
+        }
+
+        /**
+         * Claims the closest-rated waiting player within the gap t accepts (or the
+         * candidate accepts, whichever is wider). Nearest buckets first.
+         */
+        Ticket findPartner(Ticket t, long now) {
+            int window = t.window(now);
+            int reach = window / BUCKET_WIDTH + 1;
+            for (int d = 0; d <= reach; d++) {
+                Ticket c = tryBucket(t, t.bucket - d, window, now);
+                if (c == null && d > 0) c = tryBucket(t, t.bucket + d, window, now);
+                if (c != null) return c;
+            }
+            return null;
+        }
+
+        private Ticket tryBucket(Ticket t, int bucket, int window, long now) {
+            if (bucket < 0 || bucket >= BUCKETS) return null;
+            Ticket c = claimNext(bucket);
+            if (c == null) return null;
+            if (Math.abs(c.rating - t.rating) <= Math.max(window, c.window(now))) return c;
+            release(c);
+            return null;
+        }
+    }
+
+    // Queue the player for a PvP match; starts the game right away if someone close enough is waiting.
+    // Only registered game types get a queue: an unknown name means the default game, as with /play.
+    public static void request(ClientHandler player, String requestedType) {
+        String gameType = GameRegistry.resolve(requestedType);
+        Ticket previous = player.ticket;
+        if (previous != null && !cancel(previous)) {
+            return; // Already matched while this command was in flight
+        }
+
+        MatchQueue queue = queues.computeIfAbsent(gameType, k -> new MatchQueue());
+        Ticket ticket = new Ticket(player, gameType);
+        Ticket partner = queue.findPartner(ticket, ticket.since);
+        if (partner != null) {
+            startMatch(ticket, partner);
+            return;
+        }
+
+        player.ticket = ticket;
+        queue.enqueue(ticket);
+        player.sendMessage("SERVER: Waiting for an opponent for " + gameType + "... (rating " + ticket.rating
+                + ", " + queue.waiting.get() + " waiting, /cancel to leave)");
+        Workers.schedule(() -> expire(ticket), QUEUE_TIMEOUT_MS);
+    }
+
+    // Re-try everyone still waiting with their widened windows; oldest ticket of each bucket first
+    private static void sweep() {
+        long now = System.nanoTime();
+        for (MatchQueue queue : queues.values()) {
+            if (queue.waiting.get() < 2) continue;
+            for (int b = 0; b < BUCKETS; b++) {
+                Ticket oldest;
+                while ((oldest = queue.claimNext(b)) != null) {
+                    Ticket partner = queue.findPartner(oldest, now);
+                    if (partner == null) {
+                        queue.release(oldest);
+                        break;
+                    }
+                    // The one who has waited less plays as the newcomer (p1)
+                    if (partner.since >= oldest.since) startMatch(partner, oldest);
+                    else startMatch(oldest, partner);
+                }
+            }
+        }
+    }
+
+    // State once no other thread is halfway through claiming the ticket. A claim is a few
+    // instructions, but its thread can be descheduled mid-way: give up the CPU while waiting
+    // (yield, not onSpinWait, which needs Java 9)
+    private static int settle(Ticket ticket) {
+        int state;
+        while ((state = ticket.state.get()) == CLAIMING) Thread.yield();
+        return state;
+    }
+
+    // Leave the queue (/cancel or disconnect); returns false if the ticket was already matched
+    public static boolean cancel(ClientHandler player) {
+        Ticket ticket = player.ticket;
+        return ticket == null || cancel(ticket);
+    }
+
+    private static boolean cancel(Ticket ticket) {
+        while (true) {
+            if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+                queues.get(ticket.gameType).waiting.decrementAndGet();
+                if (ticket.player.ticket == ticket) ticket.player.ticket = null;
+                return true;
+            }
+            int state = settle(ticket);
+            if (state != WAITING) return state == CANCELLED; // Else it was released again: retry
+        }
+    }
+
+    private static void expire(Ticket ticket) {
+        if (ticket.state.get() != MATCHED && cancel(ticket)) {
+            timeouts.incrementAndGet();
+            ticket.player.sendMessage("SERVER: No opponent found for " + ticket.gameType + ", left the queue.");
+        }
+    }
+
+    // --- START: Create the specific game (see GameRegistry) ---
+    // p1 is the player who asked last, p2 the one who was waiting (same roles as before)
+    private static void startMatch(Ticket t1, Ticket t2) {
+        t1.state.set(MATCHED);
+        t2.state.set(MATCHED);
+        long now = System.nanoTime();
+        waitTimes.record(t1.waitedMillis(now));
+        waitTimes.record(t2.waitedMillis(now));
+        ratingSpread.record(Math.abs(t1.rating - t2.rating));
+
+        ClientHandler p1 = t1.player, p2 = t2.player;
+        String gameType = t1.gameType;
+        if (p1.ticket == t1) p1.ticket = null;
+        if (p2.ticket == t2) p2.ticket = null;
+
+        Game newGame = GameRegistry.create(gameType, p1, p2);
+
+        // Assign the game to both players
+        p1.joinGame(newGame, Game.P1);
+        p2.joinGame(newGame, Game.P2);
+        Chat.openMatch(p1, p2);
+        matches.incrementAndGet();
+
+        System.out.println(">> [MATCH] Started " + gameType + ": " + p1.username + " (" + t1.rating + ") vs "
+                + p2.username + " (" + t2.rating + ")");
+    }
+
+    public static String stats() {
+        StringBuilder sb = new StringBuilder("matches=" + matches.get() + " timeouts=" + timeouts.get() + " waiting=");
+        int total = 0;
+        for (MatchQueue q : queues.values()) total += Math.max(0, q.waiting.get());
+        sb.append(total);
+        queues.forEach((type, q) -> {
+            int n = q.waiting.get();
+            if (n > 0) sb.append(' ').append(type).append('=').append(n);
+        });
+        return sb.toString();
+    }
+
+    public static String waitHistogram() { return waitTimes.toString(); }
+
+    public static String spreadHistogram() { return ratingSpread.toString(); }
+}
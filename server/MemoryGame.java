@@ -13,6 +13,7 @@ public class MemoryGame implements Game {
     
     // Turn State
     private int firstPickIndex = -1; // -1 means no card picked yet
+    private boolean showingMismatch = false; // Cards stay face up for a moment before flipping back
     private boolean isFinished = false;
 
     // The Icons (8 pairs)
@@ -35,13 +36,11 @@ public class MemoryGame implements Game {
     }
 
     @Override
-    public synchronized void makeMove(String playerUsername, String moveCommand) {
-        if (isFinished || !playerUsername.equals(currentTurn.username)) return;
+    public synchronized void makeMove(int seat, Move move) {
+        if (isFinished || showingMismatch || currentTurn != (seat == P1 ? p1 : p2)) return;
 
-        int index;
-        try {
-            index = Integer.parseInt(moveCommand);
-        } catch (NumberFormatException e) { return; }
+        if (move.type != Move.Type.NUMBER) return;
+        int index = move.number;
 
         // Validation: Cannot pick same card twice, or already solved card
         if (index < 0 || index >= 16 || revealed[index] || index == firstPickIndex) return;
@@ -80,19 +79,25 @@ public class MemoryGame implements Game {
                 }
             } else {
                 // NO MATCH
-                try { Thread.sleep(1000); } catch (InterruptedException e) {} // Small delay to see cards
-                
-                // Hide them again
-                tempRevealed[firstPickIndex] = false;
-                tempRevealed[index] = false;
-                firstPickIndex = -1;
-                
-                switchTurn();
-                broadcast("BOARD:" + getHiddenBoardState());
+                // Leave the cards visible for a second without holding the lock (or a thread)
+                showingMismatch = true;
+                int firstPick = firstPickIndex;
+                Workers.schedule(() -> hideMismatch(firstPick, index), 1000);
             }
         }
     }
 
+    private synchronized void hideMismatch(int first, int second) {
+        // Hide them again
+        tempRevealed[first] = false;
+        tempRevealed[second] = false;
+        firstPickIndex = -1;
+        showingMismatch = false;
+
+        switchTurn();
+        broadcast("BOARD:" + getHiddenBoardState());
+    }
+
     private void switchTurn() {
         currentTurn = (currentTurn == p1) ? p2 : p1;
         sendTurnInfo();
@@ -125,6 +130,7 @@ public class MemoryGame implements Game {
         isFinished = true;
         String winner = (scoreP1 > scoreP2) ? p1.username : (scoreP2 > scoreP1) ? p2.username : "Draw";
         broadcast("GAME_OVER: Game Finished! Winner: " + winner);
+        if (scoreP1 != scoreP2) Leaderboard.reportResult("memory", winner, (scoreP1 > scoreP2 ? p2 : p1).username);
     }
 
     @Override
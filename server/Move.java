@@ -0,0 +1,209 @@
+package server;
+
+/**
+ * A "/move" argument, tokenized once by the ClientHandler and handed to Game.makeMove.
+ *
+ * Each connection owns one Move and re-parses into it for every command, so the move
+ * path allocates nothing: keywords are matched in place against the enum names and
+ * numbers are read digit by digit. A game must copy what it needs out of the Move
+ * before makeMove returns (the next command overwrites it).
+ *
+ *   "4", "-1"          NUMBER    (board cell, guess)
+ *   "UP", "left"       DIRECTION
+ *   "rock", "JUMP"     ACTION
+ *   "POS:120:340"      POS       (x, y)
+ *   "K:13"             KEYS      (number = key-state bits, see GalacticWar)
+ *   "SURV:x:y:a:1"     AIM       (x, y, angle in radians, number = 1 while firing)
+ *   anything else      INVALID
+ */
+public final class Move {
+    public enum Type { NUMBER, DIRECTION, ACTION, POS, KEYS, AIM, INVALID }
+
+    // Order matches the snake's direction codes (0=Up, 1=Right, 2=Down, 3=Left)
+    public enum Direction {
+        UP(0, -1), RIGHT(1, 0), DOWN(0, 1), LEFT(-1, 0);
+
+        public final int dx, dy;
+
+        Direction(int dx, int dy) { this.dx = dx; this.dy = dy; }
+    }
+
+    public enum Action {
+        ROCK("rock"), PAPER("paper"), SCISSORS("scissors"), // Rock-Paper-Scissors
+        RUN("RUN"), JUMP("JUMP"), SLIDE("SLIDE"),           // Cyber Sprint
+        SHOOT("SHOOT"), HIT("HIT");                         // Galactic War
+
+        public final String label; // How the game spells it in messages
+
+        Action(String label) { this.label = label; }
+    }
+
+    // Every Direction and Action by the hash of its name (open addressing, linear probing)
+    private static final Enum<?>[] KEYWORDS = new Enum<?>[32];
+
+    static {
+        for (Direction d : Direction.values()) addKeyword(d);
+        for (Action a : Action.values()) addKeyword(a);
+    }
+
+    private static void addKeyword(Enum<?> word) {
+        int slot = asciiHash(word.name(), 0, word.name().length());
+        while (KEYWORDS[slot & (KEYWORDS.length - 1)] != null) slot++;
+        KEYWORDS[slot & (KEYWORDS.length - 1)] = word;
+    }
+    private static final String POS_PREFIX = "POS:", KEYS_PREFIX = "K:", AIM_PREFIX = "SURV:";
+
+    public Type type = Type.INVALID;
+    public int number;
+    public Direction direction;
+    public Action action;
+    public int x, y;
+    public float angle;
+
+    // Parse line[from..end) (surrounding spaces allowed) into this move; returns false if INVALID
+    public boolean parse(String line, int from) {
+        int start = from, end = line.length();
+        while (start < end && line.charAt(start) == ' ') start++;
+        while (end > start && line.charAt(end - 1) <= ' ') end--;
+        direction = null;
+        action = null;
+        type = Type.INVALID;
+        if (start == end) return false;
+
+        // 1. Position update
+        if (end - start > POS_PREFIX.length() && sameIgnoringCase(line, start, POS_PREFIX)) {
+            int p = start + POS_PREFIX.length();
+            int colon = line.indexOf(':', p);
+            if (colon < 0 || colon >= end || !readInt(line, p, colon)) return false;
+            int px = number;
+            if (!readInt(line, colon + 1, end)) return false;
+            x = px;
+            y = number;
+            type = Type.POS;
+            return true;
+        }
+
+        // 2. Key state
+        if (end - start > KEYS_PREFIX.length() && sameIgnoringCase(line, start, KEYS_PREFIX)) {
+            if (!readInt(line, start + KEYS_PREFIX.length(), end)) return false;
+            type = Type.KEYS;
+            return true;
+        }
+
+        // 3. Position, aim and trigger
+        if (end - start > AIM_PREFIX.length() && sameIgnoringCase(line, start, AIM_PREFIX)) {
+            int p = start + AIM_PREFIX.length();
+            int c1 = line.indexOf(':', p), c2 = c1 < 0 ? -1 : line.indexOf(':', c1 + 1), c3 = c2 < 0 ? -1 : line.indexOf(':', c2 + 1);
+            if (c3 < 0 || c3 >= end || !readInt(line, p, c1)) return false;
+            int px = number;
+            if (!readInt(line, c1 + 1, c2)) return false;
+            int py = number;
+            if (!readDecimal(line, c2 + 1, c3) || !readInt(line, c3 + 1, end)) return false;
+            x = px;
+            y = py;
+            type = Type.AIM;
+            return true;
+        }
+
+        // 4. Number
+        char first = line.charAt(start);
+        if ((first <= '9' || first == '+' || first == '-') && readInt(line, start, end)) {
+            type = Type.NUMBER;
+            return true;
+        }
+
+        // 5. Keywords: one hash lookup, then a case-insensitive compare
+        int len = end - start;
+        Enum<?> word;
+        for (int slot = asciiHash(line, start, end); (word = KEYWORDS[slot & (KEYWORDS.length - 1)]) != null; slot++) {
+            if (word.name().length() == len && sameIgnoringCase(line, start, word.name())) {
+                if (word instanceof Direction) {
+                    direction = (Direction) word;
+                    type = Type.DIRECTION;
+                } else {
+                    action = (Action) word;
+                    type = Type.ACTION;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean is(Action a) {
+        return type == Type.ACTION && action == a;
+    }
+
+    // Upper-case ASCII hash, so "up" and "UP" land in the same slot
+    private static int asciiHash(String s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z') c -= 'a' - 'A';
+            h = 31 * h + c;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // line[from..) equals word (upper-case ASCII) ignoring case; the caller checked the length
+    private static boolean sameIgnoringCase(String line, int from, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = line.charAt(from + i);
+            if (c >= 'a' && c <= 'z') c -= 'a' - 'A';
+            if (c != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // Signed decimal in line[from..to) into number; false on anything else or overflow
+    private boolean readInt(String line, int from, int to) {
+        boolean negative = from < to && line.charAt(from) == '-';
+        if (negative || (from < to && line.charAt(from) == '+')) from++;
+        if (from == to || to - from > 10) return false;
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') return false;
+            v = v * 10 + (c - '0');
+        }
+        if (negative) v = -v;
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) return false;
+        number = (int) v;
+        return true;
+    }
+
+    // Decimal like "-1.57" in line[from..to) into angle (either separator, at most 6 fraction digits)
+    private boolean readDecimal(String line, int from, int to) {
+        boolean negative = from < to && line.charAt(from) == '-';
+        if (negative) from++;
+        if (from == to || to - from > 12) return false;
+        long v = 0, scale = 1;
+        boolean fraction = false;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if ((c == '.' || c == ',') && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9' && scale < 1_000_000) {
+                v = v * 10 + (c - '0');
+                if (fraction) scale *= 10;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        angle = (negative ? -v : v) / (float) scale;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case NUMBER: return Integer.toString(number);
+            case DIRECTION: return direction.name();
+            case ACTION: return action.label;
+            case POS: return POS_PREFIX + x + ":" + y;
+            case KEYS: return KEYS_PREFIX + number;
+            case AIM: return AIM_PREFIX + x + ":" + y + ":" + angle + ":" + number;
+            default: return "INVALID";
+        }
+    }
+}
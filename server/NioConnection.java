@@ -0,0 +1,157 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-socket state for the NIO transport: the unfinished tail of the last read,
+ * and the frames taken from the handler's OutboundQueue that the socket hasn't accepted yet.
+ */
+public class NioConnection {
+    private static final int MAX_LINE = 8 * 1024;
+
+    final ClientHandler handler;
+    private final NioEventLoop loop;
+    private final SocketChannel channel;
+    SelectionKey key;
+
+    // Partial line carried over between reads (empty for idle connections)
+    private byte[] partial = new byte[0];
+    private int partialLen = 0;
+
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>(); // Loop thread only
+    private final ArrayList<byte[]> batch = new ArrayList<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ByteBuffer[] gather = new ByteBuffer[16];
+    private boolean closed = false;
+
+    NioConnection(NioEventLoop loop, SocketChannel channel) {
+        this.loop = loop;
+        this.channel = channel;
+        this.handler = new ClientHandler(this);
+    }
+
+    // Safe to call from any thread: frames queued since the last flush go out together
+    public void flushLater() {
+        if (flushScheduled.compareAndSet(false, true)) loop.execute(this::flush);
+    }
+
+    public void closeLater() {
+        loop.execute(this::close);
+    }
+
+    // --- LOOP THREAD ONLY BELOW ---
+
+    void onReadable() {
+        ByteBuffer buf = loop.readBuffer;
+        buf.clear();
+        int n;
+        try {
+            n = channel.read(buf);
+        } catch (IOException e) {
+            System.out.println(">> [DISCONNECT] " + handler.username + " lost connection.");
+            close();
+            return;
+        }
+        if (n < 0) { close(); return; }
+        handler.limits.stamp(); // Every line of this read is checked against the same instant
+
+        byte[] data = buf.array();
+        int lineStart = 0;
+        for (int i = 0; i < n && !closed; i++) {
+            if (data[i] != '\n') continue;
+            dispatch(decodeLine(data, lineStart, i));
+            lineStart = i + 1;
+        }
+        if (closed) return;
+
+        // Keep the unterminated remainder for the next read
+        int rest = n - lineStart;
+        if (rest > 0) {
+            if (partialLen + rest > MAX_LINE) {
+                System.out.println(">> [ERROR] Line too long from " + handler.username + ", closing.");
+                close();
+                return;
+            }
+            if (partial.length < partialLen + rest) partial = Arrays.copyOf(partial, Math.max(64, (partialLen + rest) * 2));
+            System.arraycopy(data, lineStart, partial, partialLen, rest);
+            partialLen += rest;
+        }
+    }
+
+    private String decodeLine(byte[] data, int from, int to) {
+        byte[] src = data;
+        int off = from, len = to - from;
+        if (partialLen > 0) {
+            if (partial.length < partialLen + len) partial = Arrays.copyOf(partial, partialLen + len);
+            System.arraycopy(data, from, partial, partialLen, len);
+            src = partial;
+            off = 0;
+            len = partialLen + len;
+            partialLen = 0;
+        }
+        if (len > 0 && src[off + len - 1] == '\r') len--;
+        String line = new String(src, off, len, StandardCharsets.UTF_8);
+        if (partial.length > 256) partial = new byte[0]; // Don't pin big buffers on idle sockets
+        return line;
+    }
+
+    private void dispatch(String line) {
+        try {
+            if (!handler.isLoggedIn()) handler.login(line);
+            else handler.handleCommand(line);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    void flush() {
+        flushScheduled.set(false);
+        if (closed) return;
+        if (handler.outbound().drainTo(batch)) {
+            for (byte[] b : batch) pending.add(ByteBuffer.wrap(b));
+            batch.clear();
+        }
+        try {
+            while (!pending.isEmpty()) {
+                int count = 0;
+                for (ByteBuffer b : pending) {
+                    gather[count++] = b;
+                    if (count == gather.length) break;
+                }
+                long written = channel.write(gather, 0, count);
+                handler.outbound().written((int) written);
+
+                // Drop what went out completely; a leftover means the socket buffer is full
+                int done = 0;
+                while (done < count && !gather[done].hasRemaining()) {
+                    pending.poll();
+                    done++;
+                }
+                Arrays.fill(gather, 0, count, null);
+                if (done < count) break; // Wait for OP_WRITE
+            }
+            if (key.isValid()) {
+                int ops = pending.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+                if (key.interestOps() != ops) key.interestOps(ops);
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        if (key != null) key.cancel();
+        try { channel.close(); } catch (IOException ignored) {}
+        handler.disconnect();
+    }
+}
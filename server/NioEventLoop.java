@@ -0,0 +1,99 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One selector thread. Reads are framed into lines and dispatched straight into
+ * the ClientHandler of that connection, so a player's commands always run on the
+ * same loop thread, in order. Other threads (game loops, chat) only enqueue.
+ */
+public class NioEventLoop implements Runnable {
+    final int id;
+    private final NioServer server;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile Thread thread;
+
+    // Shared by every connection on this loop; only partial lines are kept per connection
+    final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+
+    NioEventLoop(NioServer server, int id) throws IOException {
+        this.server = server;
+        this.id = id;
+        this.selector = Selector.open();
+    }
+
+    void registerAcceptor(ServerSocketChannel serverChannel) throws IOException {
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    // Run a task on this loop's thread (thread-safe)
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        while (true) {
+            try {
+                if (tasks.isEmpty()) selector.select();
+                else selector.selectNow();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel());
+                        continue;
+                    }
+
+                    NioConnection conn = (NioConnection) key.attachment();
+                    if (key.isReadable()) conn.onReadable();
+                    if (key.isValid() && key.isWritable()) conn.flush();
+                }
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try { task.run(); } catch (RuntimeException e) { e.printStackTrace(); }
+                }
+            } catch (IOException e) {
+                System.out.println(">> [ERROR] Event loop " + id + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel serverChannel) throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            SocketChannel accepted = channel;
+            NioEventLoop target = server.nextLoop();
+            target.execute(() -> target.register(accepted));
+        }
+    }
+
+    private void register(SocketChannel channel) {
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            NioConnection conn = new NioConnection(this, channel);
+            conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+            conn.handler.greet();
+        } catch (IOException e) {
+            try { channel.close(); } catch (IOException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * Non-blocking transport: a handful of selector event loops serve every
+ * connection, so idle lobby players cost a few hundred bytes instead of a thread.
+ * Loop 0 also owns the listening socket and deals new channels out round-robin.
+ */
+public class NioServer {
+    private final int port;
+    private final NioEventLoop[] loops;
+    private int nextLoop = 0;
+
+    public NioServer(int port, int loopCount) {
+        this.port = port;
+        this.loops = new NioEventLoop[Math.max(1, loopCount)];
+    }
+
+    public void start() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new NioEventLoop(this, i);
+        }
+
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        loops[0].registerAcceptor(serverChannel);
+
+        for (NioEventLoop loop : loops) {
+            Thread t = new Thread(loop, "nio-loop-" + loop.id);
+            t.start();
+        }
+        System.out.println(">> [SYSTEM] NIO transport running " + loops.length + " event loop(s).");
+    }
+
+    // Called from the accepting loop only, so no synchronization needed
+    NioEventLoop nextLoop() {
+        NioEventLoop loop = loops[nextLoop];
+        nextLoop = (nextLoop + 1) % loops.length;
+        return loop;
+    }
+}
@@ -0,0 +1,184 @@
+package server;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded per-connection queue of encoded frames. Any thread may offer; the
+ * connection's writer drains everything pending in one go and writes it with a
+ * single flush, so a slow socket only ever blocks its own writer.
+ *
+ * Backpressure:
+ * - Real-time state on a stream (stream != 0) supersedes whatever of that stream
+ *   is still unsent, including deltas, since the new full frame covers them.
+ * - Deltas are dropped while over the high-water mark; the stream is then flagged
+ *   so the game sends a full frame next (see takeResync).
+ * - Staying over the high-water mark for EVICT_AFTER_MS, or reaching the hard limit,
+ *   makes offer() return false and the connection gets evicted.
+ *
+ * Frames sit in a ring of parallel arrays (frame bytes, stream id) that grows to the
+ * deepest backlog seen and is then reused, so queueing a frame allocates nothing.
+ */
+public class OutboundQueue {
+    // Supersedable real-time streams (0 = ordinary, always delivered in order)
+    public static final int STREAM_SNAKE = 1;
+    public static final int STREAM_SPACE = 2;
+    public static final int STREAM_SURVIVAL = 3;
+    private static final int STREAMS = 8;
+
+    static final int HIGH_WATER_BYTES = 256 * 1024;
+    static final int HARD_LIMIT_BYTES = 4 * HIGH_WATER_BYTES;
+    static final long EVICT_AFTER_MS = 5000;
+
+    // Server-wide counters for /stats
+    static final AtomicLong totalSuperseded = new AtomicLong();
+    static final AtomicLong totalDropped = new AtomicLong();
+    static final AtomicLong totalEvicted = new AtomicLong();
+
+    // Ring buffer, capacity a power of two; slots outside [head, head + size) are null
+    private byte[][] frames = new byte[16][];
+    private int[] streams = new int[16];
+    private int head = 0, size = 0;
+    private final int[] pendingPerStream = new int[STREAMS];
+    private int resyncStreams = 0; // Bit per stream that lost a delta
+    private long queuedBytes = 0;  // Offered but not yet written (includes in-flight)
+    private long overSince = 0;    // When we went over the high-water mark, 0 if under
+    private boolean closed = false;
+
+    // Per-connection counters
+    private long superseded = 0, dropped = 0, maxDepthBytes = 0;
+
+    /** Returns false if the consumer is too slow and should be disconnected. */
+    public synchronized boolean offer(byte[] data, int stream, boolean delta) {
+        if (closed) return true;
+        boolean over = queuedBytes > HIGH_WATER_BYTES;
+
+        if (delta && over) {
+            // A late delta is useless anyway; ask the game for a full frame instead
+            resyncStreams |= 1 << stream;
+            dropped++;
+            totalDropped.incrementAndGet();
+            return checkSlowConsumer();
+        }
+        if (stream != 0 && !delta && pendingPerStream[stream] > 0) {
+            removeStream(stream);
+        }
+
+        push(data, stream);
+        if (stream != 0) pendingPerStream[stream]++;
+        queuedBytes += data.length;
+        if (queuedBytes > maxDepthBytes) maxDepthBytes = queuedBytes;
+        notifyAll();
+        return checkSlowConsumer();
+    }
+
+    private void push(byte[] data, int stream) {
+        if (size == frames.length) grow();
+        int i = (head + size++) & (frames.length - 1);
+        frames[i] = data;
+        streams[i] = stream;
+    }
+
+    private void grow() {
+        byte[][] f = new byte[frames.length * 2][];
+        int[] s = new int[frames.length * 2];
+        for (int k = 0; k < size; k++) {
+            int i = (head + k) & (frames.length - 1);
+            f[k] = frames[i];
+            s[k] = streams[i];
+        }
+        frames = f;
+        streams = s;
+        head = 0;
+    }
+
+    // Compact in place, keeping the order of everything else
+    private void removeStream(int stream) {
+        int mask = frames.length - 1, kept = 0;
+        for (int k = 0; k < size; k++) {
+            int from = (head + k) & mask;
+            if (streams[from] == stream) {
+                queuedBytes -= frames[from].length;
+                superseded++;
+                totalSuperseded.incrementAndGet();
+                continue;
+            }
+            int to = (head + kept++) & mask;
+            frames[to] = frames[from];
+            streams[to] = streams[from];
+        }
+        for (int k = kept; k < size; k++) frames[(head + k) & mask] = null;
+        size = kept;
+        pendingPerStream[stream] = 0;
+    }
+
+    private void clear() {
+        for (int k = 0; k < size; k++) frames[(head + k) & (frames.length - 1)] = null;
+        head = size = 0;
+    }
+
+    private boolean checkSlowConsumer() {
+        if (queuedBytes <= HIGH_WATER_BYTES) {
+            overSince = 0;
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (overSince == 0) overSince = now;
+        if (queuedBytes > HARD_LIMIT_BYTES || now - overSince > EVICT_AFTER_MS) {
+            totalEvicted.incrementAndGet();
+            close(); // Reported once; later offers are ignored
+            return false;
+        }
+        return true;
+    }
+
+    // True once after a delta on this stream was dropped
+    public synchronized boolean takeResync(int stream) {
+        int bit = 1 << stream;
+        boolean needed = (resyncStreams & bit) != 0;
+        resyncStreams &= ~bit;
+        return needed;
+    }
+
+    // --- WRITER SIDE ---
+
+    // Move every pending frame into batch; returns false if nothing was pending
+    public synchronized boolean drainTo(List<byte[]> batch) {
+        if (size == 0) return false;
+        for (int k = 0; k < size; k++) batch.add(frames[(head + k) & (frames.length - 1)]);
+        clear();
+        Arrays.fill(pendingPerStream, 0);
+        return true;
+    }
+
+    // Blocking variant for writer threads; returns false once the queue is closed
+    public synchronized boolean awaitDrain(List<byte[]> batch) throws InterruptedException {
+        while (size == 0 && !closed) wait();
+        if (closed) return false;
+        return drainTo(batch);
+    }
+
+    public synchronized void written(int bytes) {
+        queuedBytes -= bytes;
+        if (queuedBytes <= HIGH_WATER_BYTES) overSince = 0;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        clear();
+        notifyAll();
+    }
+
+    // --- COUNTERS ---
+
+    public synchronized int depthMessages() { return size; }
+    public synchronized long depthBytes() { return queuedBytes; }
+    public synchronized long maxDepthBytes() { return maxDepthBytes; }
+    public synchronized long superseded() { return superseded; }
+    public synchronized long dropped() { return dropped; }
+
+    public static String totals() {
+        return "superseded=" + totalSuperseded.get() + " dropped=" + totalDropped.get() + " evicted=" + totalEvicted.get();
+    }
+}
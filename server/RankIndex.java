@@ -0,0 +1,149 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Ordered view of the leaderboard for top-K and rank queries.
+ *
+ * - A ConcurrentSkipListSet ordered by (wins desc, name) gives O(log n) updates
+ *   and the top K in O(K). Ties compare the name's hash first, which keeps the
+ *   order stable but saves a string compare on most steps (most players share a total).
+ * - A Fenwick tree counting players per win total answers "how many players have
+ *   more wins than this" in O(log maxWins), i.e. a player's rank, without walking the list.
+ * - The top K is kept as an immutable snapshot that is only rebuilt when an update
+ *   touches it, so /leaderboard is a single volatile read.
+ *
+ * Updates are absolute (set / raise) and serialized per player through the byName
+ * map, so a background loader and live wins can feed the same index in any order.
+ */
+public class RankIndex {
+    public static final int TOP_K = 5;
+
+    public static class Entry implements Comparable<Entry> {
+        public final String name;
+        public final int wins;
+        private final int nameHash; // Tie-break without touching the String in the common case
+
+        Entry(String name, int wins) {
+            this.name = name;
+            this.wins = wins;
+            this.nameHash = name.hashCode();
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            if (wins != o.wins) return Integer.compare(o.wins, wins); // Most wins first
+            if (nameHash != o.nameHash) return Integer.compare(nameHash, o.nameHash);
+            return name.compareTo(o.name);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> byName = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ordered = new ConcurrentSkipListSet<>();
+    private final int maxWins; // Higher totals share the last slot of the rank tree
+    private final AtomicIntegerArray tree; // Fenwick, 1-based by wins
+    private final AtomicInteger players = new AtomicInteger();
+
+    private volatile List<Entry> top = Collections.emptyList();
+    private volatile String topText = "NO SCORES YET";
+
+    // maxWins sizes the rank tree (4 bytes per slot), pick it for what the board can reach
+    public RankIndex(int maxWins) {
+        this.maxWins = maxWins;
+        this.tree = new AtomicIntegerArray(maxWins + 1);
+    }
+
+    // Set a player's total (0 = no longer ranked)
+    public void set(String name, int wins) {
+        byName.compute(name, (n, before) -> move(before, wins > 0 ? new Entry(n, wins) : null));
+    }
+
+    // Raise a player's total to at least wins; totals that only grow can arrive in any order
+    public void raise(String name, int wins) {
+        byName.compute(name, (n, before) ->
+                (before != null && before.wins >= wins) ? before : move(before, new Entry(n, wins)));
+    }
+
+    public int wins(String name) {
+        Entry e = byName.get(name);
+        return e == null ? 0 : e.wins;
+    }
+
+    private Entry move(Entry before, Entry after) {
+        if (before != null) {
+            ordered.remove(before);
+            add(before.wins, -1);
+        }
+        if (after != null) {
+            ordered.add(after);
+            add(after.wins, 1);
+        }
+        if (before == null && after != null) players.incrementAndGet();
+        if (before != null && after == null) players.decrementAndGet();
+
+        refreshTop(before, after);
+        return after;
+    }
+
+    // 1-based competition rank ("1224"), or 0 if the player has no wins
+    public int rank(int wins) {
+        if (wins <= 0) return 0;
+        return (int) (players.get() - countUpTo(wins)) + 1;
+    }
+
+    public int size() { return players.get(); }
+
+    public List<Entry> top() { return top; }
+
+    public String topText() { return topText; }
+
+    // --- TOP-K SNAPSHOT ---
+
+    // Decide and rebuild under one lock: updates to different names run concurrently, and a
+    // check against a top that another thread is about to replace could skip an entry that
+    // its rebuild (iterating before the entry was added) doesn't have either
+    private synchronized void refreshTop(Entry before, Entry after) {
+        if (touchesTop(before) || touchesTop(after)) republishTop();
+    }
+
+    private boolean touchesTop(Entry e) {
+        if (e == null) return false;
+        List<Entry> current = top;
+        return current.size() < TOP_K || e.compareTo(current.get(current.size() - 1)) <= 0;
+    }
+
+    // Caller holds the lock
+    private void republishTop() {
+        List<Entry> fresh = new ArrayList<>(TOP_K);
+        Iterator<Entry> it = ordered.iterator();
+        while (it.hasNext() && fresh.size() < TOP_K) fresh.add(it.next());
+
+        StringBuilder sb = new StringBuilder();
+        for (Entry e : fresh) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(e.name).append(" (").append(e.wins).append(" Wins)");
+        }
+        top = Collections.unmodifiableList(fresh);
+        topText = fresh.isEmpty() ? "NO SCORES YET" : sb.toString();
+    }
+
+    // --- FENWICK TREE (players per win total) ---
+
+    private void add(int wins, int delta) {
+        for (int i = Math.min(wins, maxWins); i <= maxWins; i += i & -i) tree.addAndGet(i, delta);
+    }
+
+    // Players with at most this many wins
+    private long countUpTo(int wins) {
+        long sum = 0;
+        for (int i = Math.min(wins, maxWins); i > 0; i -= i & -i) sum += tree.get(i);
+        return sum;
+    }
+}
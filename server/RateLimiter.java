@@ -0,0 +1,120 @@
+package server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection input limits: one token bucket per command class, so a flood of
+ * /move can't starve chat or the other way round, and a flood of anything is
+ * dropped before it reaches a game's monitor or another player's queue.
+ *
+ * Every dropped line costs a strike from a slowly refilling strike bucket. Brief
+ * bursts (lag spikes, key repeat) refill long before it runs dry; a client that
+ * keeps flooding empties it within seconds and gets disconnected.
+ *
+ * Only the connection's reader (its thread or its NIO loop) calls this, so no locking.
+ * The reader stamps the clock once per socket read (stamp()), and every line of that
+ * read is checked against the same instant: a burst of pipelined lines costs one
+ * System.nanoTime() and one refill, not one per line. Tokens are fixed-point longs.
+ */
+public class RateLimiter {
+    // Command classes
+    public static final int MOVE = 0, CHAT = 1, COMMAND = 2;
+    private static final String[] NAMES = {"move", "chat", "command"};
+
+    // Sustained rate per second and burst for each class. The client sends at most
+    // ~60 position updates a second plus key presses.
+    private static final double[] RATE = {120, 3, 10};
+    private static final double[] BURST = {120, 10, 20};
+
+    // Strikes: this many dropped lines in a burst, refilled at STRIKE_REFILL per second
+    static final double STRIKES = 200, STRIKE_REFILL = 10;
+    private static final long WARN_EVERY_NS = TimeUnit.SECONDS.toNanos(1);
+
+    // Server-wide counters for /stats
+    private static final AtomicLong totalLimited = new AtomicLong();
+    private static final AtomicLong totalKicked = new AtomicLong();
+
+    private final TokenBucket[] buckets = new TokenBucket[RATE.length];
+    private final TokenBucket strikes = new TokenBucket(STRIKE_REFILL, STRIKES);
+    private final long[] limited = new long[RATE.length];
+    private long lastWarning = 0;
+    private long now = System.nanoTime(); // Stamped per read batch
+    private boolean kicked = false;
+
+    public RateLimiter() {
+        this(RATE, BURST);
+    }
+
+    // Custom limits per class (benchmarks)
+    RateLimiter(double[] rate, double[] burst) {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new TokenBucket(rate[i], burst[i]);
+    }
+
+    public enum Verdict { ALLOW, DROP, WARN, KICK }
+
+    // Start of a read batch: the lines that follow were all received by now
+    public void stamp() {
+        now = System.nanoTime();
+    }
+
+    // What to do with one line of this class: ALLOW it, or drop it (WARN = drop and tell the player,
+    // KICK = drop and disconnect; given once, lines read before the close goes through are dropped)
+    public Verdict check(int commandClass) {
+        if (kicked) return Verdict.DROP;
+        if (buckets[commandClass].tryTake(now)) return Verdict.ALLOW;
+
+        limited[commandClass]++;
+        totalLimited.incrementAndGet();
+        if (!strikes.tryTake(now)) {
+            kicked = true;
+            totalKicked.incrementAndGet();
+            return Verdict.KICK;
+        }
+        if (now - lastWarning < WARN_EVERY_NS) return Verdict.DROP;
+        lastWarning = now;
+        return Verdict.WARN;
+    }
+
+    public static String name(int commandClass) {
+        return NAMES[commandClass];
+    }
+
+    public String stats() {
+        return "limited=" + limited[MOVE] + "/" + limited[CHAT] + "/" + limited[COMMAND];
+    }
+
+    public static String totals() {
+        return "limited=" + totalLimited.get() + " kicked=" + totalKicked.get();
+    }
+
+    /**
+     * Classic token bucket, refilled lazily from the elapsed time. Tokens are counted in
+     * billionths, so a refill is elapsed nanoseconds times the per-second rate: integers only.
+     */
+    static class TokenBucket {
+        private static final long UNIT = 1_000_000_000L; // One token
+        private final long perSecond, capacity, fillNanos;
+        private long tokens;
+        private long last = System.nanoTime();
+
+        TokenBucket(double perSecond, double capacity) {
+            this.perSecond = Math.max(1, (long) perSecond);
+            this.capacity = (long) (capacity * UNIT); // Saturates for "unlimited" benchmark buckets
+            this.fillNanos = this.capacity / this.perSecond; // Empty to full; longer gaps just fill it
+            this.tokens = this.capacity;
+        }
+
+        boolean tryTake(long now) {
+            long elapsed = now - last;
+            if (elapsed > 0) { // Once per read batch
+                last = now;
+                long gain = elapsed >= fillNanos ? capacity : elapsed * perSecond;
+                tokens = gain >= capacity - tokens ? capacity : tokens + gain;
+            }
+            if (tokens < UNIT) return false;
+            tokens -= UNIT;
+            return true;
+        }
+    }
+}
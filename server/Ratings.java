@@ -0,0 +1,32 @@
+package server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Elo rating per player and game type, used by the Matchmaker to pair similar players.
+ * Kept in memory: everyone starts at INITIAL again after a server restart.
+ */
+public class Ratings {
+    public static final int INITIAL = 1200;
+    private static final double K = 32; // Max points moved by one game
+
+    private static final Map<String, Integer> ratings = new ConcurrentHashMap<>();
+
+    public static int get(String gameType, String player) {
+        return ratings.getOrDefault(key(gameType, player), INITIAL);
+    }
+
+    // One finished PvP match; games report through Leaderboard.reportResult
+    public static synchronized void recordResult(String gameType, String winner, String loser) {
+        int rw = get(gameType, winner), rl = get(gameType, loser);
+        double expected = 1.0 / (1.0 + Math.pow(10, (rl - rw) / 400.0)); // Winner's expected score
+        int delta = (int) Math.round(K * (1.0 - expected));
+        ratings.put(key(gameType, winner), rw + delta);
+        ratings.put(key(gameType, loser), rl - delta);
+    }
+
+    private static String key(String gameType, String player) {
+        return gameType + ":" + player;
+    }
+}
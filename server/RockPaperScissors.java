@@ -3,8 +3,8 @@ package server;
 public class RockPaperScissors implements Game {
     private ClientHandler p1;
     private ClientHandler p2;
-    private String moveP1 = null;
-    private String moveP2 = null;
+    private Move.Action moveP1 = null;
+    private Move.Action moveP2 = null;
     private boolean isFinished = false;
 
     public RockPaperScissors(ClientHandler p1, ClientHandler p2) {
@@ -14,24 +14,24 @@ public class RockPaperScissors implements Game {
     }
 
     @Override
-    public synchronized void makeMove(String playerUsername, String moveCommand) {
+    public synchronized void makeMove(int seat, Move m) {
         if (isFinished) return;
 
-        // Normalize input (make it lowercase)
-        String move = moveCommand.toLowerCase();
-        if (!move.equals("rock") && !move.equals("paper") && !move.equals("scissors")) {
-            getPlayer(playerUsername).sendMessage("INVALID: Use rock, paper, or scissors.");
+        // Only the three hands are valid
+        if (!m.is(Move.Action.ROCK) && !m.is(Move.Action.PAPER) && !m.is(Move.Action.SCISSORS)) {
+            getPlayer(seat).sendMessage("INVALID: Use rock, paper, or scissors.");
             return;
         }
+        Move.Action move = m.action;
 
         // Store the move
-        if (playerUsername.equals(p1.username)) {
+        if (seat == P1) {
             moveP1 = move;
-            p1.sendMessage("You chose: " + move);
+            p1.sendMessage("You chose: " + move.label);
             p2.sendMessage("Opponent has made a move...");
         } else {
             moveP2 = move;
-            p2.sendMessage("You chose: " + move);
+            p2.sendMessage("You chose: " + move.label);
             p1.sendMessage("Opponent has made a move...");
         }
 
@@ -43,18 +43,20 @@ public class RockPaperScissors implements Game {
 
     private void determineWinner() {
         String result;
-        if (moveP1.equals(moveP2)) {
+        if (moveP1 == moveP2) {
             result = "It's a DRAW!";
-        } else if ((moveP1.equals("rock") && moveP2.equals("scissors")) ||
-                   (moveP1.equals("paper") && moveP2.equals("rock")) ||
-                   (moveP1.equals("scissors") && moveP2.equals("paper"))) {
+        } else if ((moveP1 == Move.Action.ROCK && moveP2 == Move.Action.SCISSORS) ||
+                   (moveP1 == Move.Action.PAPER && moveP2 == Move.Action.ROCK) ||
+                   (moveP1 == Move.Action.SCISSORS && moveP2 == Move.Action.PAPER)) {
             result = p1.username + " WINS!";
+            Leaderboard.reportResult("rps", p1.username, p2.username);
         } else {
             result = p2.username + " WINS!";
+            Leaderboard.reportResult("rps", p2.username, p1.username);
         }
 
-        broadcast("RESULT: " + p1.username + " (" + moveP1 + ") vs " + 
-                  p2.username + " (" + moveP2 + ")");
+        broadcast("RESULT: " + p1.username + " (" + moveP1.label + ") vs " + 
+                  p2.username + " (" + moveP2.label + ")");
         broadcast("GAME_OVER: " + result);
         isFinished = true;
     }
@@ -64,8 +66,8 @@ public class RockPaperScissors implements Game {
         return isFinished;
     }
 
-    private ClientHandler getPlayer(String username) {
-        return username.equals(p1.username) ? p1 : p2;
+    private ClientHandler getPlayer(int seat) {
+        return seat == P1 ? p1 : p2;
     }
 
     private void broadcast(String msg) {
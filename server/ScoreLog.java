@@ -0,0 +1,249 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-ahead log in front of the ScoreStore.
+ *
+ * Game threads only enqueue an event. One background writer appends everything
+ * that arrived within COMMIT_WINDOW_MS as a single write + fsync (group commit), so
+ * a crash loses at most one window, then applies the batch to the mapped store.
+ * Every CHECKPOINT_EVERY events it forces the store to disk, bumps the store's log
+ * generation and starts an empty log, so startup replays at most that many events.
+ *
+ * Events carry the new totals rather than "+1", and the store only keeps the
+ * highest value it has seen, so replaying a log the store already (partly) holds
+ * is harmless.
+ *
+ * Files: scores.dat = the store, scores-N.log = "w:game:name:total:gameTotal" lines.
+ * A legacy scores.txt (+ its "win:" log) is imported once when there is no store yet.
+ */
+public class ScoreLog {
+    static final long COMMIT_WINDOW_MS = 20;
+    static final int CHECKPOINT_EVERY = 10_000;
+    private static final String GEN_TAG = "#log=";
+
+    private final ScoreStore store;
+    private final Path base; // Store path without extension; logs are base-N.log
+    private final LinkedBlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private long generation;
+    private FileChannel log;
+    private volatile int eventsInLog = 0; // Only the writer updates it
+    private volatile boolean running = true;
+    private Thread writer;
+
+    // Stats
+    private volatile long commits = 0, committedEvents = 0;
+
+    private ScoreLog(ScoreStore store, Path base, int eventsInLog) {
+        this.store = store;
+        this.base = base;
+        this.generation = store.generation();
+        this.eventsInLog = eventsInLog;
+    }
+
+    // Maps the store (importing legacyName first if needed), replays its log, then starts the writer
+    public static ScoreLog open(String storeName, String legacyName) throws IOException {
+        Path storePath = Paths.get(storeName).toAbsolutePath();
+        Path base = storePath.resolveSibling(storePath.getFileName().toString().replaceFirst("\\.[^.]*$", ""));
+        Path legacy = storePath.resolveSibling(legacyName);
+
+        ScoreStore store;
+        if (!ScoreStore.exists(storePath) && Files.exists(legacy)) store = importLegacy(legacy, storePath);
+        else store = ScoreStore.open(storePath);
+
+        // Replay the current log; a torn last line (crash mid-write) is ignored and cut off
+        int replayed = 0;
+        Path logFile = logPath(base, store.generation());
+        if (Files.exists(logFile)) {
+            String content = new String(Files.readAllBytes(logFile), StandardCharsets.UTF_8);
+            int end = content.lastIndexOf('\n');
+            for (String line : content.substring(0, end + 1).split("\n")) {
+                if (apply(store, line)) replayed++;
+            }
+            if (end + 1 < content.length()) {
+                try (FileChannel ch = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                    ch.truncate(end + 1);
+                }
+            }
+        }
+        if (replayed > 0) System.out.println(">> [SYSTEM] Replayed " + replayed + " score events from " + logFile.getFileName());
+
+        ScoreLog wal = new ScoreLog(store, base, replayed);
+        wal.start();
+        return wal;
+    }
+
+    public ScoreStore store() {
+        return store;
+    }
+
+    private static Path logPath(Path base, long gen) {
+        return base.resolveSibling(base.getFileName() + "-" + gen + ".log");
+    }
+
+    // "w:game:name:total:gameTotal" (usernames can't contain ':', see ClientHandler.login)
+    private static boolean apply(ScoreStore store, String line) {
+        if (!line.startsWith("w:")) return false;
+        String[] parts = line.split(":");
+        if (parts.length != 5) return false;
+        try {
+            store.putMax(parts[2], Integer.parseInt(parts[3]));
+            store.putMax("@" + parts[1] + ":" + parts[2], Integer.parseInt(parts[4]));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false; // Malformed number or a name too long for the store
+        }
+    }
+
+    /**
+     * One-time import of the text leaderboard ("name:wins", "@game:name:wins", "#log=N")
+     * and the increment log that went with it ("win:name" / "win:game:name").
+     */
+    static ScoreStore importLegacy(Path legacy, Path storePath) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Integer> totals = new HashMap<>();
+        long gen = 0;
+        for (String line : Files.readAllLines(legacy, StandardCharsets.UTF_8)) {
+            if (line.startsWith(GEN_TAG)) {
+                gen = Long.parseLong(line.substring(GEN_TAG.length()).trim());
+                continue;
+            }
+            int split = line.lastIndexOf(':');
+            if (split > 0) totals.put(line.substring(0, split), Integer.parseInt(line.substring(split + 1)));
+        }
+        Path oldLog = logPath(legacy.resolveSibling(legacy.getFileName().toString().replaceFirst("\\.txt$", "")), gen);
+        if (Files.exists(oldLog)) {
+            String content = new String(Files.readAllBytes(oldLog), StandardCharsets.UTF_8);
+            for (String line : content.substring(0, content.lastIndexOf('\n') + 1).split("\n")) {
+                if (!line.startsWith("win:")) continue;
+                String event = line.substring(4);
+                int split = event.indexOf(':');
+                totals.merge(split < 0 ? event : event.substring(split + 1), 1, Integer::sum);
+                if (split >= 0) totals.merge("@" + event, 1, Integer::sum);
+            }
+        }
+
+        Path tmp = storePath.resolveSibling(storePath.getFileName() + ".import");
+        Files.deleteIfExists(tmp);
+        ScoreStore store = ScoreStore.open(tmp, totals.size());
+        int skipped = 0;
+        for (Map.Entry<String, Integer> e : totals.entrySet()) {
+            try {
+                store.putMax(e.getKey(), e.getValue());
+            } catch (IllegalArgumentException tooLong) {
+                skipped++;
+            }
+        }
+        store.setGeneration(gen + 1); // New-format logs never share a name with the legacy one
+        store.force();
+        store.close();
+        Files.move(tmp, storePath, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(oldLog);
+        System.out.println(">> [SYSTEM] Imported " + totals.size() + " scores from " + legacy.getFileName() + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms"
+                + (skipped > 0 ? " (" + skipped + " names too long, skipped)" : ""));
+        return ScoreStore.open(storePath);
+    }
+
+    private void start() throws IOException {
+        log = FileChannel.open(logPath(base, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = new Thread(this::writeLoop, "score-log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "score-log-shutdown"));
+    }
+
+    // Hot path: O(1), never touches the disk
+    public void appendWin(String game, String username, int total, int gameTotal) {
+        events.add("w:" + game + ":" + username + ":" + total + ":" + gameTotal);
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        while (running || !events.isEmpty()) {
+            try {
+                String first = events.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // Group commit: everything that shows up within the window shares one fsync
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMMIT_WINDOW_MS);
+                long left;
+                while (running && (left = deadline - System.nanoTime()) > 0) {
+                    String next = events.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    events.drainTo(batch);
+                }
+                events.drainTo(batch);
+
+                commit(batch);
+                batch.clear();
+                if (eventsInLog >= CHECKPOINT_EVERY) checkpoint();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException | RuntimeException e) {
+                System.out.println(">> [ERROR] Score log write failed: " + e.getMessage());
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<String> batch) throws IOException {
+        StringBuilder sb = new StringBuilder(batch.size() * 32);
+        for (String event : batch) sb.append(event).append('\n');
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) log.write(buf);
+        log.force(false);
+
+        // Durable now; the store catches up in memory and reaches disk at the next checkpoint
+        for (String event : batch) apply(store, event);
+        eventsInLog += batch.size();
+        commits++;
+        committedEvents += batch.size();
+    }
+
+    // Store first, then switch logs: a crash at any point leaves a store whose
+    // generation names a log that still holds everything it is missing
+    private void checkpoint() throws IOException {
+        store.force();
+        Path oldLog = logPath(base, generation);
+        generation++;
+        store.setGeneration(generation);
+
+        log.close();
+        log = FileChannel.open(logPath(base, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        Files.deleteIfExists(oldLog);
+        eventsInLog = 0;
+    }
+
+    // Flush what is queued and stop (shutdown hook)
+    public void close() {
+        running = false;
+        try {
+            writer.join(2000);
+            log.close();
+            store.force();
+        } catch (InterruptedException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public String stats() {
+        return "records=" + store.size() + " queued=" + events.size() + " commits=" + commits
+                + " events=" + committedEvents + " inLog=" + eventsInLog;
+    }
+}
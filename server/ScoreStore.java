@@ -0,0 +1,342 @@
+package server;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Memory-mapped score file: an open-addressing hash table of fixed 64-byte records,
+ * so opening it is O(1) and a lookup only faults in the page it lands on.
+ *
+ * Layout: 64-byte header (magic, capacity, count, log generation), then
+ * capacity records of [key length:1][key UTF-8:55][hash:4][value:4].
+ * Keys are player names, or "@game:name" for per-game totals. Length 0 = empty slot;
+ * a new record writes its key length last, so a reader never sees half a key.
+ *
+ * Values only ever grow (putMax), which makes replaying the score log idempotent.
+ * One writer (ScoreLog) mutates it; any thread may read. When the table gets 70% full
+ * the writer rebuilds it at twice the size into a temp file and renames it into place.
+ * Since nothing else writes, the copy runs without the write lock; readers only wait
+ * for the swap itself, after which the old mappings are released right away instead
+ * of whenever the GC gets to them.
+ */
+public class ScoreStore {
+    static final int RECORD = 64;
+    static final int MAX_KEY_BYTES = 55;
+    private static final int HEADER = 64;
+    private static final long MAGIC = 0x47534352_30303031L; // "GSCR0001"
+    private static final int SEGMENT_RECORDS = 1 << 24; // 1 GiB per mapping (a mapping can't pass 2 GiB)
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final MethodHandle UNMAP = unmapper();
+
+    private final Path path;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] segments;
+    private long capacity, count;
+    private volatile int rebuilds = 0; // Lets a scan notice that slots moved
+
+    private ScoreStore(Path path) {
+        this.path = path;
+    }
+
+    public static boolean exists(Path path) {
+        return Files.exists(path);
+    }
+
+    // Map an existing store, or create an empty one
+    public static ScoreStore open(Path path) throws IOException {
+        return open(path, 0);
+    }
+
+    // Same, but a new store is sized for expectedRecords up front (imports)
+    public static ScoreStore open(Path path, long expectedRecords) throws IOException {
+        ScoreStore store = new ScoreStore(path);
+        if (Files.exists(path)) {
+            store.map(path);
+        } else {
+            long cap = INITIAL_CAPACITY;
+            while (expectedRecords * 10 > cap * 7) cap *= 2;
+            store.create(path, cap, 0);
+        }
+        return store;
+    }
+
+    private void create(Path file, long cap, long generation) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER);
+            h.putLong(MAGIC).putLong(cap).putLong(0).putLong(generation).flip();
+            ch.write(h, 0);
+            // Sparse: untouched record pages cost no disk until written
+            ch.write(ByteBuffer.wrap(new byte[1]), HEADER + cap * RECORD - 1);
+        }
+        map(file);
+    }
+
+    private void map(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+        if (header.getLong(0) != MAGIC) throw new IOException(file + " is not a score store");
+        capacity = header.getLong(8);
+        count = header.getLong(16);
+        int n = (int) ((capacity + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+        segments = new MappedByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            long records = Math.min(SEGMENT_RECORDS, capacity - (long) i * SEGMENT_RECORDS);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + (long) i * SEGMENT_RECORDS * RECORD,
+                    records * RECORD);
+        }
+    }
+
+    // --- READS (any thread) ---
+
+    // Stored value, 0 if the key has none
+    public int get(String key) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        if (k.length > MAX_KEY_BYTES) return 0;
+        lock.readLock().lock();
+        try {
+            long slot = find(k, hash(key));
+            return slot < 0 ? 0 : buffer(slot).getInt(offset(slot) + 60);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visit every record (used to warm up the ranking in the background). Holds the
+     * read lock only per chunk, so the writer keeps going; if the table is rebuilt
+     * meanwhile the scan starts over, which may visit a record twice but never skips one.
+     */
+    public void forEach(ObjIntConsumer<String> visitor) {
+        byte[] key = new byte[MAX_KEY_BYTES];
+        long slot = 0;
+        int seen = rebuilds;
+        while (true) {
+            lock.readLock().lock();
+            try {
+                if (rebuilds != seen) {
+                    seen = rebuilds;
+                    slot = 0;
+                }
+                if (slot >= capacity) return;
+                long end = Math.min(capacity, slot + 4096);
+                for (; slot < end; slot++) {
+                    MappedByteBuffer b = buffer(slot);
+                    int off = offset(slot);
+                    int len = b.get(off) & 0xFF;
+                    if (len == 0) continue;
+                    readKey(b, off, key, len);
+                    visitor.accept(new String(key, 0, len, StandardCharsets.UTF_8), b.getInt(off + 60));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try { return count; } finally { lock.readLock().unlock(); }
+    }
+
+    public long generation() {
+        return header.getLong(24);
+    }
+
+    // --- WRITES (the score log writer only) ---
+
+    // Raise the key's value to at least value; inserts the key if it is new
+    public void putMax(String key, int value) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        if (k.length > MAX_KEY_BYTES) throw new IllegalArgumentException("Key too long for the score store: " + key);
+        int h = hash(key);
+        lock.writeLock().lock();
+        try {
+            long slot = find(k, h);
+            if (slot >= 0) {
+                MappedByteBuffer b = buffer(slot);
+                int off = offset(slot);
+                if (b.getInt(off + 60) < value) b.putInt(off + 60, value);
+                return;
+            }
+            if ((count + 1) * 10 <= capacity * 7) {
+                insert(k, h, value);
+                header.putLong(16, count);
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Full: grow first (readers keep going meanwhile), then insert the still-absent key
+        try {
+            rebuild(capacity * 2);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow " + path, e);
+        }
+        lock.writeLock().lock();
+        try {
+            insert(k, h, value);
+            header.putLong(16, count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Values written so far survive a crash once this returns
+    public void force() {
+        lock.readLock().lock();
+        try {
+            for (MappedByteBuffer s : segments) s.force();
+            header.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Call after force(): every log before this generation is now in the store
+    public void setGeneration(long generation) {
+        header.putLong(24, generation);
+        header.force();
+    }
+
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+            unmap(header, segments);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- OPEN ADDRESSING ---
+
+    // Slot holding the key, or -1 - (first empty slot) when absent
+    private long find(byte[] key, int h) {
+        long mask = capacity - 1;
+        for (long slot = h & mask; ; slot = (slot + 1) & mask) {
+            MappedByteBuffer b = buffer(slot);
+            int off = offset(slot);
+            int len = b.get(off) & 0xFF;
+            if (len == 0) return -1 - slot;
+            if (len == key.length && b.getInt(off + 56) == h && sameKey(b, off + 1, key)) return slot;
+        }
+    }
+
+    private void insert(byte[] key, int h, int value) {
+        long slot = -1 - find(key, h);
+        MappedByteBuffer b = buffer(slot);
+        int off = offset(slot);
+        for (int i = 0; i < key.length; i++) b.put(off + 1 + i, key[i]);
+        b.putInt(off + 56, h);
+        b.putInt(off + 60, value);
+        b.put(off, (byte) key.length); // Publish last
+        count++;
+    }
+
+    private static void readKey(MappedByteBuffer b, int off, byte[] into, int len) {
+        for (int i = 0; i < len; i++) into[i] = b.get(off + 1 + i);
+    }
+
+    private static boolean sameKey(MappedByteBuffer b, int off, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (b.get(off + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    // Copy every record into a table of newCapacity, then swap files. Writer thread only:
+    // the copy reads a table nobody else changes, so only the swap takes the write lock.
+    private void rebuild(long newCapacity) throws IOException {
+        long generation = generation();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        ScoreStore bigger = new ScoreStore(tmp);
+        bigger.create(tmp, newCapacity, generation);
+
+        byte[] key = new byte[MAX_KEY_BYTES];
+        for (long slot = 0; slot < capacity; slot++) {
+            MappedByteBuffer b = buffer(slot);
+            int off = offset(slot);
+            int len = b.get(off) & 0xFF;
+            if (len == 0) continue;
+            readKey(b, off, key, len);
+            bigger.insert(Arrays.copyOf(key, len), b.getInt(off + 56), b.getInt(off + 60));
+        }
+        bigger.header.putLong(16, bigger.count);
+        bigger.force();
+        bigger.channel.close();
+        unmap(bigger.header, bigger.segments);
+
+        lock.writeLock().lock();
+        try {
+            MappedByteBuffer oldHeader = header;
+            MappedByteBuffer[] oldSegments = segments;
+            channel.close();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            map(path);
+            rebuilds++;
+            unmap(oldHeader, oldSegments); // No reader holds them: every access is under the read lock
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println(">> [SYSTEM] Score store grown to " + capacity + " slots (" + count + " records).");
+    }
+
+    // --- UNMAPPING ---
+
+    // Free mappings now rather than at some later GC; the buffers must never be touched again
+    private static void unmap(MappedByteBuffer header, MappedByteBuffer[] segments) {
+        if (UNMAP == null) return; // Left to the GC
+        try {
+            UNMAP.invokeExact((ByteBuffer) header);
+            for (MappedByteBuffer s : segments) UNMAP.invokeExact((ByteBuffer) s);
+        } catch (Throwable e) {
+            System.out.println(">> [ERROR] Could not release a score store mapping: " + e);
+        }
+    }
+
+    // sun.misc.Unsafe.invokeCleaner (JDK 9+), looked up reflectively; null if it isn't there
+    private static MethodHandle unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(f.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private MappedByteBuffer buffer(long slot) {
+        return segments[(int) (slot / SEGMENT_RECORDS)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot % SEGMENT_RECORDS) * RECORD;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9; // Spread the bits, slots use the low ones
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,100 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Startup cost of the leaderboard at scale: the old text load (split + boxed HashMap)
+ * against opening the memory-mapped ScoreStore, plus the one-time import and the
+ * background rank-index warm-up. Runs in a temp directory and deletes it afterwards.
+ *
+ * Usage: java server.ScoreStoreBenchmark [players] [warmup=true|false]
+ */
+public class ScoreStoreBenchmark {
+    public static void main(String[] args) throws Exception {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean warmup = args.length <= 1 || Boolean.parseBoolean(args[1]);
+        Path dir = Files.createTempDirectory("scores-bench");
+        Path legacy = dir.resolve("scores.txt"), storePath = dir.resolve("scores.dat");
+
+        try {
+            // 1. A legacy leaderboard with this many players
+            Random rnd = new Random(42);
+            try (BufferedWriter w = Files.newBufferedWriter(legacy, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < players; i++) w.write("player" + i + ":" + (1 + rnd.nextInt(500)) + "\n");
+            }
+            System.out.println("players=" + players + " scores.txt=" + Files.size(legacy) / (1024 * 1024) + " MiB");
+
+            // 2. Old startup: parse everything before the first connection
+            long heapBefore = usedHeap();
+            long t = System.nanoTime();
+            Map<String, Integer> scores = new HashMap<>();
+            try (BufferedReader br = Files.newBufferedReader(legacy, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] parts = line.split(":");
+                    if (parts.length == 2) scores.put(parts[0], Integer.parseInt(parts[1]));
+                }
+            }
+            long textMs = ms(t);
+            long textHeap = usedHeap() - heapBefore;
+            System.out.println("text load:   " + textMs + " ms, heap +" + textHeap / (1024 * 1024) + " MiB");
+            scores = null;
+
+            // 3. One-time import into the store
+            t = System.nanoTime();
+            ScoreLog.importLegacy(legacy, storePath).close();
+            System.out.println("import:      " + ms(t) + " ms, scores.dat=" + Files.size(storePath) / (1024 * 1024)
+                    + " MiB (sparse)");
+
+            // 4. New startup: map the file, then look players up (each one faults in a page)
+            heapBefore = usedHeap();
+            t = System.nanoTime();
+            ScoreStore store = ScoreStore.open(storePath);
+            long openUs = (System.nanoTime() - t) / 1000;
+            t = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < 10_000; i++) {
+                if (store.get("player" + rnd.nextInt(players)) > 0) found++;
+            }
+            long lookupNs = (System.nanoTime() - t) / 10_000;
+            System.out.println("store open:  " + openUs + " us, heap +" + (usedHeap() - heapBefore) / 1024 + " KiB");
+            System.out.println("lookup:      " + lookupNs + " ns avg over 10000 cold lookups (" + found + " found)");
+
+            // 5. Background warm-up of the rank index (what /leaderboard and /rank need)
+            if (warmup) {
+                heapBefore = usedHeap();
+                t = System.nanoTime();
+                RankIndex index = new RankIndex(1 << 20);
+                store.forEach(index::raise);
+                long warmMs = ms(t), indexHeap = usedHeap() - heapBefore;
+                System.out.println("warm-up:     " + warmMs + " ms in the background, heap +" + indexHeap / (1024 * 1024)
+                        + " MiB (" + indexHeap / players + " B/player), top: " + index.topText());
+            }
+            store.close();
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                files.forEach(p -> { try { Files.delete(p); } catch (IOException ignored) {} });
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static long ms(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
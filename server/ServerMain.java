@@ -1,38 +1,103 @@
 package server;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ServerMain {
     private static final int PORT = 5000;
-    // Thread pool to handle up to 20 players at once
-    private static ExecutorService pool = Executors.newFixedThreadPool(20);
+    // Approximate cost of one idle connection.
+    // Platform, measured with ConnectionFootprint: ~52 KB heap + two thread stacks of ~86 KB RSS
+    // each, the reader and its writer.
+    // Virtual, an ESTIMATE (not measured, this build targets JDK 17): the same heap plus both
+    // stacks as small heap chunks while parked. Re-measure with "ConnectionFootprint virtual"
+    // on JDK 21+ before relying on the derived cap.
+    static final int THREADS_PER_BLOCKING_CONNECTION = 2;
+    private static final long PLATFORM_BYTES_PER_CONNECTION = (52 + THREADS_PER_BLOCKING_CONNECTION * 86) * 1024;
+    private static final long VIRTUAL_BYTES_PER_CONNECTION = 64 * 1024;
 
+    // One reader thread per connection (blocking transport only; each also starts a writer, counted in
+    // PLATFORM_BYTES_PER_CONNECTION), capped by memory rather than a fixed 20
+    private static ExecutorService pool;
+    private static final AtomicInteger activeConnections = new AtomicInteger();
+
+    // Usage: java server.ServerMain [--transport=blocking|nio] [--loops=N]
+    //                               [--threads=platform|virtual] [--max-connections=N]
     public static void main(String[] args) {
-        System.out.println(">> [SYSTEM] Server Starting on Port " + PORT);
+        String transport = option(args, "transport", "blocking");
+        boolean virtual = option(args, "threads", "platform").equals("virtual") && Workers.useVirtualThreads(true);
+        System.out.println(">> [SYSTEM] Server Starting on Port " + PORT + " (" + transport + " transport, "
+                + (virtual ? "virtual" : "platform") + " threads)");
 
         // --- NEW: Load Persistent Scores from File ---
-        Leaderboard.load(); 
+        Leaderboard.load();
         // ---------------------------------------------
 
+        // Optional datagram channel for real-time state, same port number as TCP
+        UdpChannel.start(PORT);
+
+        if (transport.equals("nio")) {
+            int loops = Integer.parseInt(option(args, "loops", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            try {
+                new NioServer(PORT, loops).start();
+            } catch (IOException e) {
+                System.out.println(">> [ERROR] Could not start server: " + e.getMessage());
+            }
+            return;
+        }
+
+        long perConnection = virtual ? VIRTUAL_BYTES_PER_CONNECTION : PLATFORM_BYTES_PER_CONNECTION;
+        int maxConnections = Integer.parseInt(option(args, "max-connections",
+                String.valueOf(Runtime.getRuntime().maxMemory() / perConnection)));
+        pool = Workers.connectionExecutor(maxConnections);
+
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println(">> [SYSTEM] Waiting for connections...");
+            System.out.println(">> [SYSTEM] Waiting for connections (limit " + maxConnections + ")...");
 
             while (true) {
                 // 1. Accept new connection (Blocks until someone joins)
                 Socket clientSocket = serverSocket.accept();
-                
+
                 // 2. Create a worker (ClientHandler) for this specific player
                 ClientHandler clientHandler = new ClientHandler(clientSocket);
-                
+
                 // 3. Hand it off to a background thread so the Main loop can keep listening
-                pool.execute(clientHandler);
+                if (activeConnections.incrementAndGet() > maxConnections) {
+                    reject(clientSocket);
+                    continue;
+                }
+                try {
+                    pool.execute(() -> {
+                        try { clientHandler.run(); } finally { activeConnections.decrementAndGet(); }
+                    });
+                } catch (RejectedExecutionException e) {
+                    reject(clientSocket);
+                }
             }
         } catch (IOException e) {
             System.out.println(">> [ERROR] Could not start server: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Tell the player right away instead of leaving them queued behind busy threads
+    private static void reject(Socket socket) {
+        activeConnections.decrementAndGet();
+        try {
+            new PrintWriter(socket.getOutputStream(), true).println("SERVER: Server is full, try again later.");
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+
+    // Reads "--name=value" from the command line
+    static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) return arg.substring(prefix.length()).toLowerCase();
+        }
+        return defaultValue;
+    }
+}
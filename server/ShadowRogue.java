@@ -13,6 +13,11 @@ public class ShadowRogue implements Game {
     private Random rand = new Random();
     private boolean isSolo = false;
 
+    // Last positions sent to the clients, so each update only carries what moved
+    private int sentP1 = -1, sentP2 = -1;
+    private int[] sentEnemies;
+    private boolean hurt1, hurt2; // Skeleton hits since the last update
+
     public ShadowRogue(ClientHandler p1, ClientHandler p2) {
         this.p1 = p1;
         this.p2 = p2;
@@ -27,6 +32,10 @@ public class ShadowRogue implements Game {
             broadcast("GAME_START: ROGUE RACE! First to the Chalice wins!");
         }
         
+        // The map never changes after generation: send it once, then only entity updates
+        broadcast(new MapFrame());
+        sentEnemies = new int[enemies.size()];
+        Arrays.fill(sentEnemies, -1);
         sendState();
     }
 
@@ -64,18 +73,18 @@ public class ShadowRogue implements Game {
     }
 
     @Override
-    public synchronized void makeMove(String player, String cmd) {
+    public synchronized void makeMove(int seat, Move move) {
         if (isFinished) return;
         
-        Point current = (player.equals(p1.username)) ? pos1 : pos2;
+        Point current = (seat == P1) ? pos1 : pos2;
         if (current == null) return; 
 
         // Calculate Movement
         int dx = 0, dy = 0;
-        if (cmd.equals("UP")) dy = -1;
-        else if (cmd.equals("DOWN")) dy = 1;
-        else if (cmd.equals("LEFT")) dx = -1;
-        else if (cmd.equals("RIGHT")) dx = 1;
+        if (move.type == Move.Type.DIRECTION) {
+            dx = move.direction.dx;
+            dy = move.direction.dy;
+        }
 
         int nx = current.x + dx;
         int ny = current.y + dy;
@@ -88,8 +97,10 @@ public class ShadowRogue implements Game {
             // Win Check (Found Chalice)
             if (map[nx][ny] == 2) {
                 isFinished = true;
-                broadcast("GAME_OVER: " + player + " found the Golden Chalice!");
-                Leaderboard.addWin(player);
+                ClientHandler winner = (seat == P1) ? p1 : p2;
+                broadcast("GAME_OVER: " + winner.username + " found the Golden Chalice!");
+                if (isSolo) Leaderboard.addWin("rogue", winner.username);
+                else Leaderboard.reportResult("rogue", winner.username, (seat == P1 ? p2 : p1).username);
             }
         }
 
@@ -120,33 +131,104 @@ public class ShadowRogue implements Game {
     private void checkDamage() {
         for(Point e : enemies) {
             if (e.equals(pos1)) { 
+                hurt1 = true;
                 p1.sendMessage("HINT: Ouch! A Skeleton attacked you!"); 
             }
             if (!isSolo && e.equals(pos2)) { 
+                hurt2 = true;
                 p2.sendMessage("HINT: Ouch! A Skeleton attacked you!"); 
             }
         }
     }
 
     private void sendState() {
-        // Protocol: ROGUE:W,H:MapData:P1x,P1y:P2x,P2y:Enemies...
-        StringBuilder sb = new StringBuilder("ROGUE:");
-        sb.append(W).append(",").append(H).append(":");
-        
-        // 1. Flatten Map (0011010...)
-        for(int y=0; y<H; y++) {
-            for(int x=0; x<W; x++) sb.append(map[x][y]);
+        broadcast(new DeltaFrame());
+
+        // Remember what the clients now know
+        sentP1 = packed(pos1);
+        if (!isSolo) sentP2 = packed(pos2);
+        for (int i = 0; i < enemies.size(); i++) sentEnemies[i] = packed(enemies.get(i));
+        hurt1 = hurt2 = false;
+    }
+
+    private int packed(Point p) { return p.y * W + p.x; }
+
+    // Protocol: ROGUE_MAP:W,H:tile*count,tile*count,... (row by row, run-length encoded)
+    private class MapFrame extends Frame {
+        @Override
+        protected String encodeText() {
+            StringBuilder sb = new StringBuilder("ROGUE_MAP:");
+            sb.append(W).append(",").append(H).append(":");
+            int run = 0, tile = map[0][0];
+            for(int y=0; y<H; y++) {
+                for(int x=0; x<W; x++) {
+                    if (map[x][y] == tile) { run++; continue; }
+                    sb.append(tile).append("*").append(run).append(",");
+                    tile = map[x][y];
+                    run = 1;
+                }
+            }
+            sb.append(tile).append("*").append(run).append(",");
+            return sb.toString();
+        }
+
+        @Override
+        protected byte[] encodeBinary() {
+            WireProtocol.Writer w = new WireProtocol.Writer(W * H / 4 + 8);
+            w.varint(W).varint(H);
+
+            // 2 bits per tile, row by row
+            int packed = 0, bits = 0;
+            for(int y=0; y<H; y++) {
+                for(int x=0; x<W; x++) {
+                    packed |= map[x][y] << bits;
+                    bits += 2;
+                    if (bits == 8) { w.u8(packed); packed = 0; bits = 0; }
+                }
+            }
+            if (bits > 0) w.u8(packed);
+            return w.toFrame(WireProtocol.OP_ROGUE_MAP);
+        }
+    }
+
+    // Protocol: ROGUE_D:events:P1x,P1y:P2x,P2y:idx,x,y,idx,x,y,...
+    // Player sections are empty when unchanged; only moved skeletons are listed.
+    // Events: 1 = P1 attacked, 2 = P2 attacked
+    private class DeltaFrame extends Frame {
+        @Override
+        protected String encodeText() {
+            StringBuilder sb = new StringBuilder("ROGUE_D:");
+            sb.append((hurt1 ? 1 : 0) | (hurt2 ? 2 : 0)).append(":");
+            if (packed(pos1) != sentP1) sb.append(pos1.x).append(",").append(pos1.y);
+            sb.append(":");
+            if (!isSolo && packed(pos2) != sentP2) sb.append(pos2.x).append(",").append(pos2.y);
+            sb.append(":");
+            for (int i = 0; i < enemies.size(); i++) {
+                Point e = enemies.get(i);
+                if (packed(e) != sentEnemies[i]) sb.append(i).append(",").append(e.x).append(",").append(e.y).append(",");
+            }
+            return sb.toString();
+        }
+
+        @Override
+        protected byte[] encodeBinary() {
+            boolean moved1 = packed(pos1) != sentP1;
+            boolean moved2 = !isSolo && packed(pos2) != sentP2;
+            // Flags: 1=P1 moved, 2=P2 moved, 4=P1 attacked, 8=P2 attacked
+            int flags = (moved1 ? 1 : 0) | (moved2 ? 2 : 0) | (hurt1 ? 4 : 0) | (hurt2 ? 8 : 0);
+            WireProtocol.Writer w = new WireProtocol.Writer(16).u8(flags);
+            if (moved1) w.varint(pos1.x).varint(pos1.y);
+            if (moved2) w.varint(pos2.x).varint(pos2.y);
+
+            int changed = 0;
+            for (int i = 0; i < enemies.size(); i++) if (packed(enemies.get(i)) != sentEnemies[i]) changed++;
+            w.varint(changed);
+            for (int i = 0; i < enemies.size(); i++) {
+                Point e = enemies.get(i);
+                if (packed(e) != sentEnemies[i]) w.varint(i).varint(e.x).varint(e.y);
+            }
+            return w.toFrame(WireProtocol.OP_ROGUE_DELTA);
         }
-        sb.append(":");
-        
-        // 2. Player Positions
-        sb.append(pos1.x).append(",").append(pos1.y).append(":");
-        sb.append(!isSolo ? pos2.x : "-1").append(",").append(!isSolo ? pos2.y : "-1").append(":");
-        
-        // 3. Enemies
-        for(Point e : enemies) sb.append(e.x).append(",").append(e.y).append(",");
-        
-        broadcast(sb.toString());
     }
 
     @Override
@@ -156,4 +238,9 @@ public class ShadowRogue implements Game {
         p1.sendMessage(msg);
         if (p2 != null) p2.sendMessage(msg);
     }
+
+    private void broadcast(Frame frame) {
+        p1.send(frame);
+        if (p2 != null) p2.send(frame);
+    }
 }
\ No newline at end of file
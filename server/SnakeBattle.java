@@ -1,176 +1,279 @@
 package server;
 
-import java.awt.Point;
-import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class SnakeBattle implements Game {
+/**
+ * Snake on a primitive occupancy grid. Cells are packed ints (y * W + x), bodies are
+ * ring buffers of cells, and a swap-remove list of free cells makes food placement
+ * O(1) and never inside a snake. A tick allocates nothing in the simulation itself.
+ * The two outgoing frames and their encoders belong to the match and are reused each
+ * tick; only the encoded bytes are new, since players' queues hold on to them.
+ */
+public class SnakeBattle implements TickableGame {
     private ClientHandler p1, p2;
-    private ArrayList<Point> snake1 = new ArrayList<>();
-    private ArrayList<Point> snake2 = new ArrayList<>();
-    private Point food;
     private int dir1 = 1; // 0=Up, 1=Right, 2=Down, 3=Left
-    private int dir2 = 3; 
+    private int dir2 = 3;
     private boolean isFinished = false;
     private final int W = 40, H = 30; // Grid Size
     private boolean isSolo = false;
 
+    // --- OCCUPANCY GRID ---
+    private static final byte EMPTY = 0, SNAKE1 = 1, SNAKE2 = 2;
+    private final byte[] grid = new byte[W * H];
+    private final int[] freeCells = new int[W * H]; // Every cell not covered by a snake
+    private final int[] freeIndex = new int[W * H]; // Position of a cell in freeCells, -1 if occupied
+    private int freeCount = 0;
+
+    private final Body snake1 = new Body(W * H);
+    private final Body snake2 = new Body(W * H);
+    private int food;
+
+    // Delta frames: full SNAKE keyframe on start and every KEYFRAME_TICKS, otherwise only what changed
+    private static final int KEYFRAME_TICKS = 50; // 5 seconds
+    private int tickCount = 0;
+    private boolean foodMoved, moved1, moved2, tail1Removed, tail2Removed;
+    private final StateFrame fullFrame = new StateFrame();
+    private final DeltaFrame deltaFrame = new DeltaFrame();
+    private final StringBuilder textOut = new StringBuilder(256);
+    private final WireProtocol.Writer binaryOut = new WireProtocol.Writer(4 + 4 * W * H);
+
     public SnakeBattle(ClientHandler p1, ClientHandler p2) {
         this.p1 = p1;
         this.p2 = p2;
-        
+
         // If Player 2 is missing, it is SOLO MODE
         if (p2 == null) isSolo = true;
 
-        // Init Player 1 (Green)
-        snake1.add(new Point(5, 5)); 
-        snake1.add(new Point(4, 5));
+        for (int c = 0; c < W * H; c++) {
+            freeCells[c] = c;
+            freeIndex[c] = c;
+        }
+        freeCount = W * H;
+
+        // Init Player 1 (Green), tail first
+        occupy(snake1, cell(4, 5), SNAKE1);
+        occupy(snake1, cell(5, 5), SNAKE1);
 
         // Init Player 2 (Orange) - ONLY IF NOT SOLO
         if (!isSolo) {
-            snake2.add(new Point(35, 25)); 
-            snake2.add(new Point(36, 25));
+            occupy(snake2, cell(36, 25), SNAKE2);
+            occupy(snake2, cell(35, 25), SNAKE2);
         }
 
         spawnFood();
-        
+
         if (isSolo) {
             broadcast("GAME_START: CLASSIC SNAKE! Eat food to grow.");
         } else {
             broadcast("GAME_START: SNAKE BATTLE! Green vs Orange.");
         }
 
-        startGameLoop();
+        TickEngine.register(this);
     }
 
-    private void startGameLoop() {
-        new Thread(() -> {
-            while (!isFinished) {
-                try {
-                    Thread.sleep(100); // Game Speed
-                    update();
-                    
-                    // Protocol: SNAKE:foodX,foodY:s1Body...:s2Body...
-                    StringBuilder msg = new StringBuilder("SNAKE:");
-                    msg.append(food.x).append(",").append(food.y).append(":");
-                    
-                    // Snake 1 Data
-                    for(Point p : snake1) msg.append(p.x).append(",").append(p.y).append(",");
-                    msg.append(":");
-                    
-                    // Snake 2 Data (Empty if Solo)
-                    if (!isSolo) {
-                        for(Point p : snake2) msg.append(p.x).append(",").append(p.y).append(",");
-                    }
-                    
-                    broadcast(msg.toString());
-                } catch (Exception e) { isFinished = true; }
-            }
-        }).start();
+    @Override
+    public long tickMillis() { return 100; } // Game Speed
+
+    @Override
+    public synchronized void tick() {
+        // Nobody left to play against: forfeit (or abandon if everyone left)
+        if (!p1.isConnected() && (isSolo || !p2.isConnected())) { isFinished = true; return; }
+        if (!p1.isConnected()) { endGame(P1); return; }
+        if (!isSolo && !p2.isConnected()) { endGame(P2); return; }
+
+        foodMoved = false;
+        update();
+
+        fullFrame.invalidate();
+        deltaFrame.invalidate();
+        Frame full = fullFrame;
+        Frame delta = (tickCount++ % KEYFRAME_TICKS == 0) ? full : deltaFrame;
+        p1.send(pick(p1, full, delta));
+        if (p2 != null) p2.send(pick(p2, full, delta));
     }
 
-    private void update() {
-        if (isFinished) return;
+    // Delta players get the delta unless their queue dropped one and they need a full frame again
+    private Frame pick(ClientHandler p, Frame full, Frame delta) {
+        if (!p.wantsSnakeDeltas()) return full;
+        return p.outbound().takeResync(OutboundQueue.STREAM_SNAKE) ? full : delta;
+    }
 
-        // Move Player 1
-        moveSnake(snake1, dir1, p1.username);
+    // Protocol: SNAKE:foodX,foodY:s1Body...:s2Body...
+    private class StateFrame extends Frame {
+        @Override
+        public int stream() { return OutboundQueue.STREAM_SNAKE; }
 
-        // Move Player 2 (Only if PvP)
-        if (!isSolo) {
-            moveSnake(snake2, dir2, p2.username);
+        @Override
+        protected String encodeText() {
+            StringBuilder msg = textOut;
+            msg.setLength(0);
+            msg.append("SNAKE:");
+            msg.append(food % W).append(",").append(food / W).append(":");
+
+            // Snake 1 Data (head first)
+            for (int i = 0; i < snake1.length; i++) msg.append(snake1.get(i) % W).append(",").append(snake1.get(i) / W).append(",");
+            msg.append(":");
+
+            // Snake 2 Data (Empty if Solo)
+            for (int i = 0; i < snake2.length; i++) msg.append(snake2.get(i) % W).append(",").append(snake2.get(i) / W).append(",");
+            return msg.toString();
+        }
+
+        @Override
+        protected byte[] encodeBinary() {
+            WireProtocol.Writer w = binaryOut.reset();
+            w.varint(food % W).varint(food / W);
+            w.varint(snake1.length);
+            for (int i = 0; i < snake1.length; i++) w.varint(snake1.get(i) % W).varint(snake1.get(i) / W);
+            w.varint(snake2.length); // Empty if Solo
+            for (int i = 0; i < snake2.length; i++) w.varint(snake2.get(i) % W).varint(snake2.get(i) / W);
+            return w.toFrame(WireProtocol.OP_SNAKE);
         }
-        
-        checkCollisions();
     }
 
-    private void moveSnake(ArrayList<Point> snake, int dir, String name) {
-        Point head = snake.get(0);
-        Point newHead = new Point(head);
-        
-        if (dir == 0) newHead.y--;
-        if (dir == 1) newHead.x++;
-        if (dir == 2) newHead.y++;
-        if (dir == 3) newHead.x--;
-
-        // Wall Crash Check
-        if (newHead.x < 0 || newHead.x >= W || newHead.y < 0 || newHead.y >= H) {
-            endGame(name); // That player loses
-            return;
+    // Protocol: SNAKE_D:foodX,foodY:h1x,h1y,tailRemoved:h2x,h2y,tailRemoved (empty section = unchanged)
+    private class DeltaFrame extends Frame {
+        @Override
+        public int stream() { return OutboundQueue.STREAM_SNAKE; }
+
+        @Override
+        public boolean isDelta() { return true; }
+
+        @Override
+        protected String encodeText() {
+            StringBuilder msg = textOut;
+            msg.setLength(0);
+            msg.append("SNAKE_D:");
+            if (foodMoved) msg.append(food % W).append(",").append(food / W);
+            msg.append(":");
+            if (moved1) msg.append(snake1.head() % W).append(",").append(snake1.head() / W).append(",").append(tail1Removed ? 1 : 0);
+            msg.append(":");
+            if (moved2) msg.append(snake2.head() % W).append(",").append(snake2.head() / W).append(",").append(tail2Removed ? 1 : 0);
+            return msg.toString();
         }
 
-        snake.add(0, newHead); // Grow Head
-        
-        if (newHead.equals(food)) {
-            spawnFood(); // Ate Food -> Grow
-        } else {
-            snake.remove(snake.size() - 1); // Normal Move -> Remove tail
+        @Override
+        protected byte[] encodeBinary() {
+            // Flags: 1=food moved, 2=snake1 moved, 4=snake1 tail removed, 8=snake2 moved, 16=snake2 tail removed
+            int flags = (foodMoved ? 1 : 0) | (moved1 ? 2 : 0) | (tail1Removed ? 4 : 0) | (moved2 ? 8 : 0) | (tail2Removed ? 16 : 0);
+            WireProtocol.Writer w = binaryOut.reset().u8(flags);
+            if (foodMoved) w.varint(food % W).varint(food / W);
+            if (moved1) w.varint(snake1.head() % W).varint(snake1.head() / W);
+            if (moved2) w.varint(snake2.head() % W).varint(snake2.head() / W);
+            return w.toFrame(WireProtocol.OP_SNAKE_DELTA);
         }
     }
 
-    private void checkCollisions() {
-        if(isFinished) return;
-        Point h1 = snake1.get(0);
+    private void update() {
+        moved1 = moved2 = tail1Removed = tail2Removed = false;
+        if (isFinished) return;
 
-        // 1. Did P1 hit Self?
-        if (snake1.subList(1, snake1.size()).contains(h1)) {
-            endGame(p1.username);
-            return;
-        }
+        // 1. Next heads + Wall Crash Check
+        int next1 = step(snake1.head(), dir1);
+        int next2 = isSolo ? -1 : step(snake2.head(), dir2);
+        if (next1 < 0) { endGame(P1); return; }
+        if (!isSolo && next2 < 0) { endGame(P2); return; }
+
+        // 2. Tails move first, so following your own (or the other) tail is legal
+        boolean ate1 = next1 == food;
+        boolean ate2 = !isSolo && next2 == food;
+        if (!ate1) { release(snake1.removeTail()); tail1Removed = true; }
+        if (!isSolo && !ate2) { release(snake2.removeTail()); tail2Removed = true; }
+
+        // 3. What each new head runs into (head-on counts as P1 hitting P2)
+        byte hit1 = grid[next1];
+        byte hit2 = isSolo ? EMPTY : (next2 == next1 ? SNAKE1 : grid[next2]);
+        if (hit1 == EMPTY && next1 == next2) hit1 = SNAKE2;
 
-        // PvP Collisions (Only check if opponent exists)
+        occupy(snake1, next1, SNAKE1);
+        moved1 = true;
         if (!isSolo) {
-            Point h2 = snake2.get(0);
-            
-            // Did P2 hit Self?
-            if (snake2.subList(1, snake2.size()).contains(h2)) endGame(p2.username);
-
-            // Head-to-Body Collisions
-            if (snake2.contains(h1)) endGame(p1.username); // P1 hit P2
-            if (snake1.contains(h2)) endGame(p2.username); // P2 hit P1
+            occupy(snake2, next2, SNAKE2);
+            moved2 = true;
         }
+        if (ate1 || ate2) spawnFood(); // Ate Food -> Grow
+
+        // 4. Collisions, same precedence as before: self-hits, then head into the other body
+        if (hit1 == SNAKE1) endGame(P1);
+        else if (hit2 == SNAKE2) endGame(P2);
+        else if (hit1 == SNAKE2) endGame(P1);
+        else if (hit2 == SNAKE1) endGame(P2);
+    }
+
+    // Cell one step in the given direction, or -1 when that leaves the grid
+    private int step(int from, int dir) {
+        int x = from % W, y = from / W;
+        if (dir == 0) y--;
+        if (dir == 1) x++;
+        if (dir == 2) y++;
+        if (dir == 3) x--;
+        if (x < 0 || x >= W || y < 0 || y >= H) return -1;
+        return cell(x, y);
+    }
+
+    private int cell(int x, int y) { return y * W + x; }
+
+    // Push a new head and mark its cell (swap-remove it from the free list)
+    private void occupy(Body body, int c, byte owner) {
+        body.addHead(c);
+        if (grid[c] == EMPTY) {
+            int idx = freeIndex[c];
+            int last = freeCells[--freeCount];
+            freeCells[idx] = last;
+            freeIndex[last] = idx;
+            freeIndex[c] = -1;
+        }
+        grid[c] = owner;
+    }
+
+    private void release(int c) {
+        grid[c] = EMPTY;
+        freeIndex[c] = freeCount;
+        freeCells[freeCount++] = c;
     }
 
     private void spawnFood() {
-        food = new Point((int)(Math.random()*W), (int)(Math.random()*H));
+        // Any free cell, uniformly; the board can only be full if someone fills all 1200 cells
+        if (freeCount == 0) { food = -1; return; }
+        food = freeCells[ThreadLocalRandom.current().nextInt(freeCount)];
+        foodMoved = true;
     }
 
-    private void endGame(String loser) {
+    private void endGame(int loser) {
         if(isFinished) return;
         isFinished = true;
-        
+
         String msg;
         if (isSolo) {
             // Solo Game Over Message
-            msg = "GAME_OVER: You Crashed! Score: " + (snake1.size() - 2);
-            Leaderboard.addWin(p1.username); // Save high score attempt
+            msg = "GAME_OVER: You Crashed! Score: " + (snake1.length - 2);
+            Leaderboard.addWin("snake", p1.username); // Save high score attempt
         } else {
             // PvP Game Over Message
-            String winner = loser.equals(p1.username) ? p2.username : p1.username;
-            msg = "GAME_OVER: " + winner + " WINS THE BATTLE!";
-            Leaderboard.addWin(winner);
+            ClientHandler winner = (loser == P1) ? p2 : p1;
+            ClientHandler beaten = (loser == P1) ? p1 : p2;
+            msg = "GAME_OVER: " + winner.username + " WINS THE BATTLE!";
+            Leaderboard.reportResult("snake", winner.username, beaten.username);
         }
-        
+
         broadcast(msg);
     }
 
     @Override
-    public synchronized void makeMove(String player, String cmd) {
-        int newDir = -1;
-        if (cmd.equals("UP")) newDir = 0;
-        else if (cmd.equals("RIGHT")) newDir = 1;
-        else if (cmd.equals("DOWN")) newDir = 2;
-        else if (cmd.equals("LEFT")) newDir = 3;
+    public synchronized void makeMove(int seat, Move move) {
+        int newDir = (move.type == Move.Type.DIRECTION) ? move.direction.ordinal() : -1; // Same codes as dir1/dir2
 
         if (newDir != -1) {
-            if (player.equals(p1.username)) {
+            if (seat == P1) {
                 if (!isOpposite(dir1, newDir)) dir1 = newDir;
-            } else if (!isSolo && p2 != null && player.equals(p2.username)) {
+            } else if (!isSolo && seat == P2) {
                 if (!isOpposite(dir2, newDir)) dir2 = newDir;
             }
         }
     }
-    
+
     private boolean isOpposite(int d1, int d2) {
-        return (d1 == 0 && d2 == 2) || (d1 == 2 && d2 == 0) || 
+        return (d1 == 0 && d2 == 2) || (d1 == 2 && d2 == 0) ||
                (d1 == 1 && d2 == 3) || (d1 == 3 && d2 == 1);
     }
 
@@ -181,4 +284,28 @@ public class SnakeBattle implements Game {
         p1.sendMessage(msg);
         if (p2 != null) p2.sendMessage(msg);
     }
-}
\ No newline at end of file
+
+    /** Ring buffer of packed cells; index 0 is the head. */
+    private static class Body {
+        private final int[] cells;
+        private int headPos = 0; // Slot of the head; the body runs forward from here
+        int length = 0;
+
+        Body(int capacity) { cells = new int[capacity]; }
+
+        int head() { return cells[headPos]; }
+
+        int get(int i) { return cells[(headPos + i) % cells.length]; }
+
+        void addHead(int c) {
+            headPos = (headPos - 1 + cells.length) % cells.length;
+            cells[headPos] = c;
+            length++;
+        }
+
+        int removeTail() {
+            length--;
+            return cells[(headPos + length) % cells.length];
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package server;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Crimson Survival tick cost and snapshot size as the horde grows. Runs a full match of
+ * benchmark players (firing all the time, taking no damage) on this thread, without the
+ * TickEngine, and drains their outbound queues after every tick to count the bytes each
+ * one would have been sent.
+ *
+ * Usage: java server.SurvivalBenchmark [players] [ticks per size]
+ */
+public class SurvivalBenchmark {
+    private static final int[] HORDES = {250, 1000, 2000, 4000, 8000};
+
+    public static void main(String[] args) {
+        int playerCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+
+        run(playerCount, ticks, HORDES[HORDES.length - 1], false); // JIT warm-up
+        for (int horde : HORDES) run(playerCount, ticks, horde, true);
+    }
+
+    private static void run(int playerCount, int ticks, int horde, boolean print) {
+        ClientHandler[] players = new ClientHandler[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = new ClientHandler((Socket) null);
+            players[i].login(WireProtocol.PROTO_COMMAND); // Binary snapshots, as the game client gets them
+            players[i].username = "bench" + i;
+        }
+        CrimsonSurvival game = new CrimsonSurvival(players, false, false, true);
+        game.tick(); // Spawns the players
+        game.scatterZombies(horde);
+
+        Move move = new Move();
+        ArrayList<byte[]> batch = new ArrayList<>();
+        long bytes = 0, maxBytes = 0, busy = 0, zombieTicks = 0;
+        for (int t = 0; t < ticks; t++) {
+            for (int i = 0; i < playerCount; i++) { // Walk in circles, shooting ahead
+                double a = (t + i * 50) / 40.0;
+                move.parse("SURV:" + (int) (1200 + 300 * Math.cos(a)) + ":" + (int) (900 + 300 * Math.sin(a)) + ":"
+                        + String.format(Locale.ROOT, "%.2f", a + Math.PI / 2) + ":1", 0);
+                game.makeMove(i, move);
+            }
+            long start = System.nanoTime();
+            game.tick();
+            busy += System.nanoTime() - start;
+            zombieTicks += game.zombieCount();
+            game.scatterZombies(horde - game.zombieCount()); // Keep the horde at size
+
+            for (ClientHandler p : players) {
+                p.outbound().drainTo(batch);
+                int n = 0;
+                for (byte[] b : batch) n += b.length;
+                p.outbound().written(n);
+                batch.clear();
+                bytes += n;
+                maxBytes = Math.max(maxBytes, n);
+            }
+        }
+        if (print) System.out.printf("horde %5d: %7.1f us/tick  %5.1f ns/zombie  %6.0f B/client/tick (max %d)%n", horde,
+                busy / 1e3 / ticks, (double) busy / Math.max(1, zombieTicks), (double) bytes / ticks / playerCount, maxBytes);
+    }
+}
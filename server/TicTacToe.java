@@ -4,14 +4,14 @@ public class TicTacToe implements Game {
     private char[] board;
     private ClientHandler playerX;
     private ClientHandler playerO;
-    private String currentTurn; // Stores the Username of the current player
+    private int currentTurn; // Seat of the player to move
     private boolean isFinished = false;
 
     public TicTacToe(ClientHandler p1, ClientHandler p2) {
         this.playerX = p1;
         this.playerO = p2;
         this.board = new char[] {'-', '-', '-', '-', '-', '-', '-', '-', '-'};
-        this.currentTurn = p1.username; // Player 1 starts
+        this.currentTurn = P1; // Player 1 starts
         
         // Notify players
         broadcast("GAME_START: You are playing TicTacToe!");
@@ -21,21 +21,19 @@ public class TicTacToe implements Game {
     }
 
     @Override
-    public synchronized void makeMove(String playerUsername, String moveCommand) {
+    public synchronized void makeMove(int seat, Move move) {
         if (isFinished) return;
 
         // 1. Validation: Is it this player's turn?
-        if (!playerUsername.equals(currentTurn)) {
+        if (seat != currentTurn) {
             return; // Ignore moves if it's not your turn
         }
 
-        // 2. Parse the Move (String -> Int)
-        int index;
-        try {
-            index = Integer.parseInt(moveCommand);
-        } catch (NumberFormatException e) {
+        // 2. The Move must be a cell number
+        if (move.type != Move.Type.NUMBER) {
             return; // Invalid input
         }
+        int index = move.number;
 
         // 3. Validation: Is the move legal?
         if (index < 0 || index >= 9 || board[index] != '-') {
@@ -43,13 +41,15 @@ public class TicTacToe implements Game {
         }
 
         // 4. Apply the Move
-        char symbol = (playerX.username.equals(playerUsername)) ? 'X' : 'O';
+        char symbol = (seat == P1) ? 'X' : 'O';
+        String playerUsername = (seat == P1) ? playerX.username : playerO.username;
         board[index] = symbol;
 
         // 5. Check Win Condition
         if (checkWin(symbol)) {
             broadcast("BOARD:" + getBoardString());
             broadcast("GAME_OVER: Winner is " + playerUsername + "!");
+            Leaderboard.reportResult("tictactoe", playerUsername, (seat == P1 ? playerO : playerX).username);
             isFinished = true;
             return;
         }
@@ -63,7 +63,7 @@ public class TicTacToe implements Game {
         }
 
         // 7. Switch Turn
-        currentTurn = (currentTurn.equals(playerX.username)) ? playerO.username : playerX.username;
+        currentTurn = (currentTurn == P1) ? P2 : P1;
         broadcast("BOARD:" + getBoardString());
     }
 
@@ -0,0 +1,116 @@
+package server;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts every real-time match on a few scheduler threads (one shard per core)
+ * instead of one sleeping thread per match.
+ *
+ * Each game keeps an absolute deadline that advances by exactly one period per
+ * tick, so timing doesn't drift with scheduling delays. A tick that starts more
+ * than a whole period late skips the missed ticks rather than replaying them
+ * back-to-back, and counts as an overrun.
+ */
+public class TickEngine {
+    private static final ScheduledExecutorService[] shards = new ScheduledExecutorService[
+            Math.max(1, Runtime.getRuntime().availableProcessors())];
+    private static final AtomicInteger[] shardLoad = new AtomicInteger[shards.length];
+
+    // Stats
+    private static final AtomicInteger activeGames = new AtomicInteger();
+    private static final AtomicLong ticks = new AtomicLong();
+    private static final AtomicLong overruns = new AtomicLong();
+    private static final AtomicLong skippedTicks = new AtomicLong();
+    private static volatile long lastOverrunLog = 0;
+
+    static {
+        for (int i = 0; i < shards.length; i++) {
+            String name = "tick-" + i;
+            shards[i] = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+            shardLoad[i] = new AtomicInteger();
+        }
+    }
+
+    public static void register(TickableGame game) {
+        // Least-loaded shard keeps matches spread evenly across cores
+        int shard = 0;
+        for (int i = 1; i < shards.length; i++) {
+            if (shardLoad[i].get() < shardLoad[shard].get()) shard = i;
+        }
+        shardLoad[shard].incrementAndGet();
+        activeGames.incrementAndGet();
+
+        long period = TimeUnit.MILLISECONDS.toNanos(game.tickMillis());
+        new Ticker(game, shard, period).schedule(System.nanoTime() + period);
+    }
+
+    public static String stats() {
+        return "games=" + activeGames.get() + " ticks=" + ticks.get()
+                + " overruns=" + overruns.get() + " skipped=" + skippedTicks.get();
+    }
+
+    private static class Ticker implements Runnable {
+        private final TickableGame game;
+        private final int shard;
+        private final long period;
+        private long deadline;
+
+        Ticker(TickableGame game, int shard, long period) {
+            this.game = game;
+            this.shard = shard;
+            this.period = period;
+        }
+
+        void schedule(long nextDeadline) {
+            deadline = nextDeadline;
+            shards[shard].schedule(this, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                if (!game.isGameOver()) game.tick();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            ticks.incrementAndGet();
+
+            if (game.isGameOver()) {
+                // Unregister
+                shardLoad[shard].decrementAndGet();
+                activeGames.decrementAndGet();
+                return;
+            }
+
+            long now = System.nanoTime();
+            long next = deadline + period;
+            if (now > next) {
+                // Already past the next deadline: skip to the first one still ahead
+                long behind = (now - next) / period + 1;
+                next += behind * period;
+                skippedTicks.addAndGet(behind);
+                reportOverrun(now - start);
+            }
+            schedule(next);
+        }
+
+        private void reportOverrun(long tookNanos) {
+            overruns.incrementAndGet();
+            long now = System.currentTimeMillis();
+            if (now - lastOverrunLog < 1000) return; // At most one line per second
+            lastOverrunLog = now;
+            System.out.println(">> [TICK] Overrun in " + game.getClass().getSimpleName() + ": tick took "
+                    + TimeUnit.NANOSECONDS.toMillis(tookNanos) + "ms, period " + TimeUnit.NANOSECONDS.toMillis(period)
+                    + "ms (" + stats() + ")");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package server;
+
+/**
+ * A real-time game driven by the shared TickEngine instead of its own thread.
+ * The engine calls tick() at a fixed rate and drops the game once isGameOver() is true.
+ */
+public interface TickableGame extends Game {
+    // Time between ticks, in milliseconds
+    long tickMillis();
+
+    // Advance the simulation one step and broadcast the result
+    void tick();
+}
@@ -0,0 +1,158 @@
+package server;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional datagram side channel for real-time state, next to the TCP connection.
+ *
+ * Over TCP one lost segment holds back every later frame until it is retransmitted
+ * (head-of-line blocking), although a newer full snapshot already makes the lost one
+ * useless. So players on the binary protocol may ask for UDP after login:
+ *
+ *   client -> TCP  "/udp"
+ *   server -> TCP  "UDP:<port>:<token>"
+ *   client -> UDP  8-byte token, repeated until the ack (the datagram itself may be lost)
+ *   server -> TCP  "UDP:OK"
+ *
+ * From then on full frames of a real-time stream (see Frame.stream) go out as one
+ * datagram each: [sequence:4 bytes big-endian][binary frame]. The sequence counts up per
+ * connection; the client keeps the highest one seen per opcode and discards anything
+ * older, so late or reordered datagrams never roll the picture back. Lobby, chat, game
+ * events and deltas (which need every predecessor) stay on TCP. A full frame over
+ * MAX_DATAGRAM takes TCP too, wrapped in OP_SEQUENCED with the sequence it would have had,
+ * so the client runs the same stale check on it.
+ *
+ * For testing over localhost the channel can simulate a bad network on both directions:
+ * -Dudp.loss=0.2 drops 20% of datagrams, -Dudp.delayMs=40 -Dudp.jitterMs=30 delays each one
+ * by 40-70 ms (which also reorders them). See UdpHarness.
+ */
+public class UdpChannel {
+    static final int MAX_DATAGRAM = 1200; // Stays below the usual path MTU, no IP fragmentation
+    static final int TOKEN_BYTES = 8;
+
+    // Loss / latency shim (off by default)
+    static final double LOSS = Double.parseDouble(System.getProperty("udp.loss", "0"));
+    static final long DELAY_MS = Long.getLong("udp.delayMs", 0);
+    static final long JITTER_MS = Long.getLong("udp.jitterMs", 0);
+
+    private static volatile DatagramSocket socket;
+    private static final Map<Long, ClientHandler> pending = new ConcurrentHashMap<>(); // Token -> player waiting for its hello
+    private static final SecureRandom tokens = new SecureRandom();
+
+    // Stats
+    private static final AtomicLong datagrams = new AtomicLong();
+    private static final AtomicLong bytes = new AtomicLong();
+    private static final AtomicLong shimDropped = new AtomicLong();
+    private static final AtomicLong tooLarge = new AtomicLong();
+    private static final AtomicLong attached = new AtomicLong();
+
+    // Binds the datagram socket and starts its receiver; without it /udp is refused
+    public static void start(int port) {
+        try {
+            socket = new DatagramSocket(port);
+        } catch (IOException e) {
+            System.out.println(">> [ERROR] UDP channel disabled, could not bind port " + port + ": " + e.getMessage());
+            return;
+        }
+        Workers.start("udp-receiver", UdpChannel::receiveLoop);
+        String shim = LOSS > 0 || DELAY_MS > 0 || JITTER_MS > 0
+                ? " (simulating loss=" + LOSS + " delay=" + DELAY_MS + "+" + JITTER_MS + "ms)" : "";
+        System.out.println(">> [SYSTEM] UDP state channel on port " + port + shim);
+    }
+
+    public static boolean isEnabled() {
+        return socket != null;
+    }
+
+    // Step 2 of the handshake: a fresh token for this player, sent back over TCP
+    public static String offer(ClientHandler client) {
+        forget(client); // A repeated /udp replaces the earlier token
+        long token = tokens.nextLong();
+        pending.put(token, client);
+        return "UDP:" + socket.getLocalPort() + ":" + token;
+    }
+
+    public static void forget(ClientHandler client) {
+        pending.values().remove(client);
+    }
+
+    // --- SENDING ---
+
+    // One datagram per frame; false if it can't go this way and has to take TCP
+    static boolean send(SocketAddress to, int seq, byte[] frame) {
+        if (frame.length + 4 > MAX_DATAGRAM) {
+            tooLarge.incrementAndGet();
+            return false;
+        }
+        byte[] data = new byte[4 + frame.length];
+        data[0] = (byte) (seq >>> 24);
+        data[1] = (byte) (seq >>> 16);
+        data[2] = (byte) (seq >>> 8);
+        data[3] = (byte) seq;
+        System.arraycopy(frame, 0, data, 4, frame.length);
+        DatagramPacket packet = new DatagramPacket(data, data.length, to);
+
+        if (shimDrops()) return true; // Lost on the way, as far as anyone can tell
+        if (DELAY_MS > 0 || JITTER_MS > 0) {
+            long delay = DELAY_MS + (JITTER_MS > 0 ? ThreadLocalRandom.current().nextLong(JITTER_MS + 1) : 0);
+            Workers.schedule(() -> transmit(packet), delay);
+        } else {
+            transmit(packet);
+        }
+        return true;
+    }
+
+    private static void transmit(DatagramPacket packet) {
+        try {
+            socket.send(packet);
+            datagrams.incrementAndGet();
+            bytes.addAndGet(packet.getLength());
+        } catch (IOException e) {
+            // Unreliable by design: the next snapshot replaces this one
+        }
+    }
+
+    private static boolean shimDrops() {
+        if (LOSS <= 0 || ThreadLocalRandom.current().nextDouble() >= LOSS) return false;
+        shimDropped.incrementAndGet();
+        return true;
+    }
+
+    // --- RECEIVING (handshake only; input stays on TCP) ---
+
+    private static void receiveLoop() {
+        DatagramPacket packet = new DatagramPacket(new byte[64], 64);
+        while (true) {
+            try {
+                packet.setLength(64);
+                socket.receive(packet);
+            } catch (IOException e) {
+                System.out.println(">> [ERROR] UDP receiver stopped: " + e.getMessage());
+                return;
+            }
+            if (packet.getLength() != TOKEN_BYTES || shimDrops()) continue;
+            byte[] d = packet.getData();
+            long token = 0;
+            for (int i = 0; i < TOKEN_BYTES; i++) token = (token << 8) | (d[i] & 0xFF);
+
+            ClientHandler client = pending.remove(token);
+            if (client == null || !client.isConnected()) continue; // Unknown, or a retry after the ack
+            client.attachUdp(packet.getSocketAddress());
+            attached.incrementAndGet();
+        }
+    }
+
+    public static String stats() {
+        if (!isEnabled()) return "off";
+        return "attached=" + attached.get() + " datagrams=" + datagrams.get() + " bytes=" + bytes.get()
+                + " tooLarge=" + tooLarge.get() + " shimDropped=" + shimDropped.get();
+    }
+}
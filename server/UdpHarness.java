@@ -0,0 +1,197 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Plays a Galactic War match between two bots against a running server on localhost:
+ * one takes real-time state over UDP, the other stays on TCP. Reports per bot how many
+ * snapshots were applied, missed (gaps in the tick numbers) or discarded as stale
+ * (arrived after a newer one), and the time between applied snapshots.
+ *
+ * The interesting runs use the server's loss / latency shim (see UdpChannel), e.g.
+ *   java -Dudp.loss=0.2 -Dudp.delayMs=40 -Dudp.jitterMs=40 server.ServerMain
+ *   java server.UdpHarness 10
+ * Loopback TCP never loses anything, so the TCP bot is the no-loss baseline here.
+ *
+ * Usage: java server.UdpHarness [seconds]
+ */
+public class UdpHarness {
+    private static final String HOST = "127.0.0.1";
+    private static final int PORT = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        Bot udpBot = new Bot("udp-bot", true), tcpBot = new Bot("tcp-bot", false);
+        udpBot.connect();
+        Thread.sleep(300); // UDP handshake before the match starts
+        tcpBot.connect();
+
+        // Fly up and down without shooting, so the match lasts
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        for (int i = 0; System.currentTimeMillis() < end; i++) {
+            udpBot.send("/move K:" + (i % 2 == 0 ? GalacticWar.KEY_UP : GalacticWar.KEY_DOWN));
+            tcpBot.send("/move K:" + (i % 2 == 0 ? GalacticWar.KEY_DOWN : GalacticWar.KEY_UP));
+            Thread.sleep(500);
+        }
+        udpBot.report();
+        tcpBot.report();
+        System.exit(0);
+    }
+
+    private static class Bot {
+        final String name;
+        final boolean wantsUdp;
+        Socket socket;
+        DataInputStream in;
+        OutputStream out;
+        volatile boolean udpReady = false;
+
+        // Snapshot accounting (ticks arrive on the UDP thread or the TCP reader, never both at once)
+        int lastTick = -1, lastSeq = 0;
+        long applied = 0, missed = 0, stale = 0, lastAt = 0, maxGapMs = 0;
+        final Histogram gaps = new Histogram("ms", 20, 40, 60, 100, 200, 500);
+
+        Bot(String name, boolean wantsUdp) {
+            this.name = name;
+            this.wantsUdp = wantsUdp;
+        }
+
+        void connect() throws IOException {
+            socket = new Socket(HOST, PORT);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = socket.getOutputStream();
+            send(WireProtocol.PROTO_COMMAND);
+            send(name);
+            while (!readLine().equals(WireProtocol.PROTO_ACK)) { } // Greeting first
+            if (wantsUdp) send("/udp");
+            send("/play space");
+            Workers.start(name + "-tcp", this::readTcp);
+        }
+
+        synchronized void send(String line) throws IOException {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            for (int b; (b = in.read()) != '\n'; ) {
+                if (b < 0) throw new IOException("closed");
+                sb.append((char) b);
+            }
+            return sb.toString();
+        }
+
+        private void readTcp() {
+            try {
+                while (true) {
+                    int op = in.readUnsignedByte();
+                    byte[] payload = new byte[readVarint(in)];
+                    in.readFully(payload);
+                    if (op == WireProtocol.OP_SPACE) {
+                        snapshot(payload, 0);
+                    } else if (op == WireProtocol.OP_SEQUENCED) {
+                        sequenced(payload); // Over the datagram size, came on TCP instead
+                    } else if (op == WireProtocol.OP_TEXT) {
+                        String msg = new String(payload, StandardCharsets.UTF_8);
+                        if (msg.equals("UDP:OK")) udpReady = true;
+                        else if (msg.startsWith("UDP:")) startUdp(msg);
+                        else if (msg.startsWith("GAME_")) System.out.println(name + ": " + msg);
+                    }
+                }
+            } catch (IOException e) {
+                // Server gone or harness done
+            }
+        }
+
+        // Same handshake as the game client: resend the token until the TCP ack arrives
+        private void startUdp(String msg) throws IOException {
+            String[] p = msg.split(":");
+            long token = Long.parseLong(p[2]);
+            DatagramSocket udp = new DatagramSocket();
+            udp.connect(InetAddress.getByName(HOST), Integer.parseInt(p[1]));
+            byte[] hello = new byte[UdpChannel.TOKEN_BYTES];
+            for (int i = 0; i < hello.length; i++) hello[i] = (byte) (token >>> (56 - 8 * i));
+
+            Workers.start(name + "-hello", () -> {
+                try {
+                    for (int i = 0; i < 20 && !udpReady; i++) {
+                        udp.send(new DatagramPacket(hello, hello.length));
+                        Thread.sleep(250);
+                    }
+                } catch (IOException | InterruptedException ignored) {}
+            });
+            Workers.start(name + "-udp", () -> readUdp(udp));
+        }
+
+        private void readUdp(DatagramSocket udp) {
+            byte[] data = new byte[UdpChannel.MAX_DATAGRAM];
+            DatagramPacket packet = new DatagramPacket(data, data.length);
+            try {
+                while (true) {
+                    packet.setLength(data.length);
+                    udp.receive(packet);
+                    sequenced(data);
+                }
+            } catch (IOException e) {
+                // Harness done
+            }
+        }
+
+        // [sequence:4][frame], from a datagram or an OP_SEQUENCED payload; stale ones are counted, not applied
+        private synchronized void sequenced(byte[] data) {
+            int seq = ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+            if (data[4] != WireProtocol.OP_SPACE) return;
+            if (seq - lastSeq <= 0) { stale++; return; }
+            lastSeq = seq;
+            int p = 5;
+            while ((data[p++] & 0x80) != 0) { } // Skip the frame length
+            snapshot(data, p);
+        }
+
+        // The payload starts with the server tick; snapshots go out every SNAPSHOT_EVERY ticks
+        private synchronized void snapshot(byte[] payload, int off) {
+            int tick = 0, shift = 0, b;
+            do {
+                b = payload[off++];
+                tick |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            long now = System.nanoTime();
+            if (lastTick >= 0) {
+                missed += Math.max(0, (tick - lastTick) / GalacticWar.SNAPSHOT_EVERY - 1);
+                long gapMs = (now - lastAt) / 1_000_000;
+                gaps.record(gapMs);
+                maxGapMs = Math.max(maxGapMs, gapMs);
+            }
+            lastTick = tick;
+            lastAt = now;
+            applied++;
+        }
+
+        synchronized void report() {
+            System.out.printf("%s (%s): applied=%d missed=%d stale=%d maxGap=%dms%n  gaps %s%n", name,
+                    wantsUdp ? (udpReady ? "udp" : "udp handshake failed, tcp") : "tcp",
+                    applied, missed, stale, maxGapMs, gaps);
+        }
+
+        private static int readVarint(DataInputStream in) throws IOException {
+            int v = 0, shift = 0, b;
+            do {
+                b = in.readUnsignedByte();
+                v |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return v;
+        }
+    }
+}
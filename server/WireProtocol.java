@@ -0,0 +1,108 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Optional binary wire format, negotiated by sending "/proto binary" before the username.
+ * Other "/proto" options (e.g. "/proto snake-delta") only switch on message types the
+ * client understands, work with both formats, and are not acknowledged.
+ *
+ * Every server -> client frame is: [opcode:1 byte][payload length:varint][payload].
+ * Coordinates are unsigned varints (1 byte below 128), values that can be negative use zig-zag.
+ * Client -> server traffic stays as text lines: commands are tiny and sent on key presses.
+ */
+public class WireProtocol {
+    public static final String PROTO_COMMAND = "/proto binary";
+    public static final String PROTO_ACK = "PROTO:BINARY";
+    public static final String PROTO_SNAKE_DELTA = "/proto snake-delta";
+
+    // --- OPCODES (keep in sync with client.FrameReader) ---
+    public static final int OP_TEXT = 0x01;      // UTF-8 text line, same content as the text protocol
+    public static final int OP_SNAKE = 0x10;     // food x,y | n1, n1 x,y pairs | n2, n2 x,y pairs
+    // 0x11, 0x12: ENEMY_POS / HP of the relayed Galactic War, superseded by OP_SPACE
+    public static final int OP_ROGUE_MAP = 0x13; // w, h | 2-bit packed map (sent once per match)
+    public static final int OP_SNAKE_DELTA = 0x14; // flags | [food x,y] | [head1 x,y] | [head2 x,y]
+    public static final int OP_ROGUE_DELTA = 0x15; // flags | [p1 x,y] | [p2 x,y] | n, n idx,x,y
+    public static final int OP_SPACE = 0x16;     // tick | n, n (zigzag x,y, hp, flags, shots, hits) | m, m (zigzag x,y, owner)
+    public static final int OP_SURVIVAL = 0x17;  // one player's view, see CrimsonSurvival.View
+    public static final int OP_SEQUENCED = 0x18; // sequence:4 big-endian | a whole frame; a UDP datagram's layout, sent on TCP
+
+    public static byte[] textFrame(String msg) {
+        byte[] utf8 = msg.getBytes(StandardCharsets.UTF_8);
+        Writer w = new Writer(utf8.length);
+        w.bytes(utf8, 0, utf8.length);
+        return w.toFrame(OP_TEXT);
+    }
+
+    // A UDP-bound frame that fell back to TCP, carrying its datagram sequence number
+    public static byte[] sequencedFrame(int seq, byte[] frame) {
+        Writer w = new Writer(4 + frame.length);
+        w.u8(seq >>> 24).u8(seq >>> 16).u8(seq >>> 8).u8(seq);
+        w.bytes(frame, 0, frame.length);
+        return w.toFrame(OP_SEQUENCED);
+    }
+
+    /** Growable payload buffer with varint helpers. */
+    public static class Writer {
+        private byte[] buf;
+        private int len = 0;
+
+        public Writer(int capacity) {
+            buf = new byte[Math.max(16, capacity)];
+        }
+
+        // Start over, keeping the buffer (for a Writer reused per frame)
+        public Writer reset() {
+            len = 0;
+            return this;
+        }
+
+        public Writer u8(int v) {
+            ensure(1);
+            buf[len++] = (byte) v;
+            return this;
+        }
+
+        public Writer varint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[len++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte) v;
+            return this;
+        }
+
+        public Writer zigzag(int v) {
+            return varint((v << 1) ^ (v >> 31));
+        }
+
+        public Writer bytes(byte[] src, int off, int n) {
+            ensure(n);
+            System.arraycopy(src, off, buf, len, n);
+            len += n;
+            return this;
+        }
+
+        // Prepend opcode and length, producing the bytes that go on the wire
+        public byte[] toFrame(int opcode) {
+            int lenBytes = 1;
+            for (int v = len >>> 7; v != 0; v >>>= 7) lenBytes++;
+            byte[] frame = new byte[1 + lenBytes + len];
+            frame[0] = (byte) opcode;
+            int p = 1, v = len;
+            while ((v & ~0x7F) != 0) {
+                frame[p++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            frame[p++] = (byte) v;
+            System.arraycopy(buf, 0, frame, p, len);
+            return frame;
+        }
+
+        private void ensure(int n) {
+            if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Central place that decides whether server work runs on platform or virtual threads.
+ * Virtual threads are looked up reflectively so the server still builds and runs on
+ * JDKs before 21; asking for them there falls back to platform threads with a warning.
+ */
+public class Workers {
+    private static final MethodHandle START_VIRTUAL = lookup("startVirtualThread",
+            MethodType.methodType(Thread.class, Runnable.class), Thread.class);
+    private static final MethodHandle VIRTUAL_EXECUTOR = lookup("newVirtualThreadPerTaskExecutor",
+            MethodType.methodType(ExecutorService.class), Executors.class);
+
+    private static volatile boolean virtual = false;
+
+    // Timers for short delayed actions (e.g. hiding Memory cards) so games never sleep while holding a lock
+    private static final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "game-timers");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Returns false if this JDK has no virtual threads
+    public static boolean useVirtualThreads(boolean enable) {
+        if (enable && START_VIRTUAL == null) {
+            System.out.println(">> [SYSTEM] Virtual threads need JDK 21+, staying on platform threads.");
+            return false;
+        }
+        virtual = enable;
+        return true;
+    }
+
+    public static boolean isVirtual() { return virtual; }
+
+    // Start a background task (game loop, writer...) in the configured mode
+    public static Thread start(String name, Runnable task) {
+        if (virtual) {
+            try {
+                return (Thread) START_VIRTUAL.invokeExact(task);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Could not start virtual thread", e);
+            }
+        }
+        Thread t = new Thread(task, name);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Executor for one ClientHandler per connection. Virtual mode is unbounded; platform mode
+     * grows a thread per connection up to maxThreads and rejects beyond that instead of queueing.
+     */
+    public static ExecutorService connectionExecutor(int maxThreads) {
+        if (virtual) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("Could not create virtual thread executor", e);
+            }
+        }
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+    }
+
+    public static void schedule(Runnable task, long delayMs) {
+        timers.schedule(() -> {
+            try { task.run(); } catch (RuntimeException e) { e.printStackTrace(); }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Periodic background job (e.g. the matchmaking sweep) on the same timer thread
+    public static void repeat(Runnable task, long periodMs) {
+        timers.scheduleWithFixedDelay(() -> {
+            try { task.run(); } catch (RuntimeException e) { e.printStackTrace(); }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static MethodHandle lookup(String name, MethodType type, Class<?> owner) {
+        try {
+            return MethodHandles.publicLookup().findStatic(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}